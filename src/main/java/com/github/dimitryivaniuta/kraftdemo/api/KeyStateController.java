@@ -0,0 +1,48 @@
+package com.github.dimitryivaniuta.kraftdemo.api;
+
+import com.github.dimitryivaniuta.kraftdemo.state.KeyState;
+import com.github.dimitryivaniuta.kraftdemo.state.KeyStateQueryService;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Latest value / count / last offset per key, served from the local Kafka Streams store.
+ */
+@RestController
+@RequestMapping("/api/state")
+@RequiredArgsConstructor
+public class KeyStateController {
+
+    private final KeyStateQueryService state;
+
+    @GetMapping("/{key}")
+    public ResponseEntity<KeyState> byKey(@PathVariable String key) {
+        try {
+            var owner = state.remoteOwner(key);
+            if (owner.isPresent()) {
+                // key lives in a partition assigned to another instance
+                return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
+                        .location(UriComponentsBuilder.newInstance()
+                                .scheme("http").host(owner.get().host()).port(owner.get().port())
+                                .path("/api/state/{key}")
+                                .buildAndExpand(key)
+                                .encode()
+                                .toUri())
+                        .build();
+            }
+            return state.find(key)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalStateException | IllegalArgumentException | InvalidStateStoreException e) {
+            // streams not running yet / store migrating during a rebalance
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+}
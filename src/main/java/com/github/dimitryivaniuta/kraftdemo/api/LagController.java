@@ -0,0 +1,29 @@
+package com.github.dimitryivaniuta.kraftdemo.api;
+
+import com.github.dimitryivaniuta.kraftdemo.observe.ConsumerLagMonitor;
+import com.github.dimitryivaniuta.kraftdemo.observe.PartitionLag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Serves the cached lag snapshot - safe to poll from dashboards, never calls the broker.
+ */
+@RestController
+@RequestMapping("/api/lag")
+@RequiredArgsConstructor
+public class LagController {
+
+    private final ConsumerLagMonitor monitor;
+
+    @GetMapping
+    public List<PartitionLag> lag(@RequestParam(required = false) String groupId) {
+        return monitor.snapshot().stream()
+                .filter(l -> groupId == null || l.groupId().equals(groupId))
+                .toList();
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.dimitryivaniuta.kraftdemo.api;
 
+import com.github.dimitryivaniuta.kraftdemo.producer.Priority;
 import jakarta.validation.constraints.NotBlank;
 
 import java.util.UUID;
@@ -10,11 +11,18 @@ import java.util.UUID;
  * eventId is optional:
  * - if omitted, backend generates it
  * - if provided, it is used for idempotency/dedup end-to-end (recommended in real systems)
+ * <p>
+ * priority is optional (NORMAL if omitted): HIGH goes to the high-priority lane topic.
  */
 public record ProduceRequest(
         @NotBlank String key,
         @NotBlank String value,
         Integer partition,
-        UUID eventId
+        UUID eventId,
+        Priority priority
 ) {
+
+    public Priority priorityOrDefault() {
+        return priority != null ? priority : Priority.NORMAL;
+    }
 }
@@ -15,7 +15,7 @@ public class ProducerController {
 
     @PostMapping
     public ResponseEntity<ProduceResponse> produce(@Valid @RequestBody ProduceRequest req) {
-        var eventId = producer.send(req.key(), req.value(), req.partition(), req.eventId());
+        var eventId = producer.send(req.key(), req.value(), req.partition(), req.eventId(), req.priorityOrDefault());
         return ResponseEntity.accepted().body(new ProduceResponse(eventId));
     }
 }
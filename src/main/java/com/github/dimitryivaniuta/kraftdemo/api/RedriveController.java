@@ -0,0 +1,40 @@
+package com.github.dimitryivaniuta.kraftdemo.api;
+
+import com.github.dimitryivaniuta.kraftdemo.redrive.RedriveService;
+import com.github.dimitryivaniuta.kraftdemo.redrive.RedriveStatus;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/redrive")
+@RequiredArgsConstructor
+public class RedriveController {
+
+    private final RedriveService redrive;
+
+    @PostMapping
+    public ResponseEntity<RedriveStatus> start(@Valid @RequestBody RedriveRequest req) {
+        return redrive.start(req)
+                .map(status -> ResponseEntity.accepted().body(status))
+                // another re-drive is still running
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    @GetMapping
+    public List<RedriveStatus> all() {
+        return redrive.statuses();
+    }
+
+    @GetMapping("/{redriveId}")
+    public ResponseEntity<RedriveStatus> status(@PathVariable UUID redriveId) {
+        return redrive.status(redriveId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
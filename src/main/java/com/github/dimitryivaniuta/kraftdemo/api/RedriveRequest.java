@@ -0,0 +1,31 @@
+package com.github.dimitryivaniuta.kraftdemo.api;
+
+import jakarta.validation.constraints.AssertTrue;
+
+import java.time.Instant;
+
+/**
+ * Re-drive of parked poison messages (kafka_poison_message) back to their topic.
+ * <p>
+ * Selection (combined with AND, at least one is required): groupId, errorClass (fully qualified class name),
+ * created time range [from, to), fingerprint (kafka_poison_message.fingerprint: failure cause).
+ * Rows already re-driven are skipped unless includeRedriven is set.
+ * <p>
+ * maxRecordsPerSecond / batchSize are optional - defaults come from app.redrive.*.
+ */
+public record RedriveRequest(
+        String groupId,
+        String errorClass,
+        Instant from,
+        Instant to,
+        String fingerprint,
+        Integer maxRecordsPerSecond,
+        Integer batchSize,
+        boolean includeRedriven
+) {
+
+    @AssertTrue(message = "at least one of groupId, errorClass, from, to, fingerprint is required")
+    public boolean isSelective() {
+        return groupId != null || errorClass != null || from != null || to != null || fingerprint != null;
+    }
+}
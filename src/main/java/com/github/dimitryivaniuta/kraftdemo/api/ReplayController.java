@@ -0,0 +1,40 @@
+package com.github.dimitryivaniuta.kraftdemo.api;
+
+import com.github.dimitryivaniuta.kraftdemo.replay.ReplayService;
+import com.github.dimitryivaniuta.kraftdemo.replay.ReplayStatus;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/replay")
+@RequiredArgsConstructor
+public class ReplayController {
+
+    private final ReplayService replay;
+
+    @PostMapping
+    public ResponseEntity<ReplayStatus> start(@Valid @RequestBody ReplayRequest req) {
+        return replay.start(req)
+                .map(status -> ResponseEntity.accepted().body(status))
+                // a replay for this group is already running
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    @GetMapping
+    public List<ReplayStatus> all() {
+        return replay.statuses();
+    }
+
+    @GetMapping("/{replayId}")
+    public ResponseEntity<ReplayStatus> status(@PathVariable UUID replayId) {
+        return replay.status(replayId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
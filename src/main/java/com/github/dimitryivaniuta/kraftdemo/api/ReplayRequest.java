@@ -0,0 +1,44 @@
+package com.github.dimitryivaniuta.kraftdemo.api;
+
+import com.github.dimitryivaniuta.kraftdemo.producer.Priority;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotBlank;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Replay (backfill) request for one consumer group and lane.
+ * <p>
+ * lane selects the topic (app.topic.name or app.topic.high-priority-name) and with it the Kafka group whose
+ * listeners are stopped and whose offsets are advanced; dedup always uses the inbox group. Defaults to NORMAL.
+ * <p>
+ * Start position per partition:
+ * - fromOffsets[partition] if present
+ * - otherwise the first offset with timestamp >= fromTimestamp
+ * - partitions with neither are not replayed
+ * <p>
+ * End position per partition is toOffsets[partition] (exclusive) or the end offset at replay start.
+ * <p>
+ * forceReprocess bypasses inbox dedup (already PROCESSED events run again, side effects are overwritten in place).
+ * maxRecordsPerSecond is optional - if omitted, app.replay.default-max-records-per-second is used.
+ */
+public record ReplayRequest(
+        @NotBlank String groupId,
+        Instant fromTimestamp,
+        Map<Integer, Long> fromOffsets,
+        Map<Integer, Long> toOffsets,
+        Integer maxRecordsPerSecond,
+        boolean forceReprocess,
+        Priority lane
+) {
+
+    public ReplayRequest {
+        if (lane == null) lane = Priority.NORMAL;
+    }
+
+    @AssertTrue(message = "fromTimestamp or fromOffsets is required")
+    public boolean isStartPositionPresent() {
+        return fromTimestamp != null || (fromOffsets != null && !fromOffsets.isEmpty());
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.dimitryivaniuta.kraftdemo.config;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaAdmin;
+
+/**
+ * One long-lived AdminClient shared by all monitoring code.
+ * <p>
+ * Creating an AdminClient per request (or running kafka-consumer-groups per dashboard refresh) opens new
+ * connections and metadata fetches every time; this one is reused and closed on shutdown.
+ */
+@Configuration
+public class KafkaAdminClientConfig {
+
+    @Bean(destroyMethod = "close")
+    public AdminClient sharedAdminClient(KafkaAdmin kafkaAdmin) {
+        return AdminClient.create(kafkaAdmin.getConfigurationProperties());
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.dimitryivaniuta.kraftdemo.config;
+
+import com.github.dimitryivaniuta.kraftdemo.state.KeyStateTopology;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaStreams;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.kafka.streams.KafkaStreamsInteractiveQueryService;
+
+/**
+ * Kafka Streams app next to the listener containers: materializes per-key state of the demo topic and its
+ * high-priority lane.
+ * <p>
+ * Streams config comes from spring.kafka.streams.*; spring.kafka.streams.auto-startup=false keeps it off.
+ */
+@Configuration
+@EnableKafkaStreams
+public class KafkaStreamsConfig {
+
+    @Autowired
+    void keyStateTopology(StreamsBuilder builder,
+                          @Value("${app.topic.name}") String topic,
+                          @Value("${app.topic.high-priority-name}") String highPriorityTopic) {
+        KeyStateTopology.build(builder, topic, highPriorityTopic);
+    }
+
+    @Bean
+    public KafkaStreamsInteractiveQueryService kafkaStreamsInteractiveQueryService(StreamsBuilderFactoryBean factoryBean) {
+        return new KafkaStreamsInteractiveQueryService(factoryBean);
+    }
+}
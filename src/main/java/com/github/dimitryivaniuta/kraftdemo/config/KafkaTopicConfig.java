@@ -7,17 +7,30 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
 
 /**
- * Creates exactly one topic with 3 partitions.
+ * Creates the demo topic and its high-priority lane, 3 partitions each.
+ * <p>
+ * Lanes must keep the same partition count: an event keeps its partition number - and therefore its inbox
+ * shard - whichever lane it is sent to, which is what makes dedup work across lanes.
  * <p>
  * Note: replication factor is 1 because docker-compose runs a single broker.
  */
 @Configuration
 public class KafkaTopicConfig {
 
+    public static final int PARTITIONS = 3;
+
     @Bean
     public NewTopic demoTopic(@Value("${app.topic.name}") String topic) {
         return TopicBuilder.name(topic)
-                .partitions(3)
+                .partitions(PARTITIONS)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public NewTopic highPriorityTopic(@Value("${app.topic.high-priority-name}") String topic) {
+        return TopicBuilder.name(topic)
+                .partitions(PARTITIONS)
                 .replicas(1)
                 .build();
     }
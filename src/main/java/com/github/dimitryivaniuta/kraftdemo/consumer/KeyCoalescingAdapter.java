@@ -0,0 +1,194 @@
+package com.github.dimitryivaniuta.kraftdemo.consumer;
+
+import com.github.dimitryivaniuta.kraftdemo.payload.Payload;
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.ShardRouter;
+import com.github.dimitryivaniuta.kraftdemo.producer.Priority;
+import com.github.dimitryivaniuta.kraftdemo.reliability.exception.PoisonMessageException;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.EventRecord;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.InboxService;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.ProcessingService;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.EventIdUtil;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.RedriveTargetUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.adapter.BatchToRecordAdapter;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last-write-wins coalescing (opt-in, app.coalescing.enabled): containers poll in batches and, per partition,
+ * only the newest record of each key reaches the record-level listener in {@link PartitionedConsumers}.
+ * <p>
+ * Superseded records still get their inbox row: once the survivor of their (partition, key) went through the
+ * listener, they are marked PROCESSED in bulk (one statement per partition, holding a permit of the container's
+ * lane like any other inbox write), so a redelivery of the batch skips them like any other duplicate. A crash
+ * before that write redelivers the batch: the survivor is then a duplicate and the superseded records are marked.
+ * <p>
+ * Never coalesced (they reach the listener like in record mode):
+ * - records without a key
+ * - re-drives addressed to other groups (the listener skips them)
+ * - records failing validation, so they are parked as poison instead of being recorded as processed
+ * <p>
+ * Failures: a failing survivor is reported as {@link BatchListenerFailedException}, so the DefaultErrorHandler
+ * commits everything before it and retries / recovers (poison) from that record on. The records it superseded are
+ * not marked: none of the key's values was applied.
+ * <p>
+ * Batch containers do not set the delivery attempt header, so {@link InboxService#claim} sees every delivery of a
+ * survivor as a first attempt and always does its dedup lookup on this path.
+ * <p>
+ * Metrics: kafka.consumer.coalescing.records{group,outcome=processed|superseded} and
+ * kafka.consumer.coalescing.ratio{group} (share of superseded records since start).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class KeyCoalescingAdapter implements BatchToRecordAdapter<Object, Object> {
+
+    private final InboxService inbox;
+    private final ProcessingService processing;
+    private final ShardRouter shards;
+    private final LaneScheduler lanes;
+    private final MeterRegistry meters;
+
+    @Value("${app.coalescing.enabled:false}")
+    private boolean enabled;
+
+    private final Map<String, GroupStats> stats = new ConcurrentHashMap<>();
+
+    private record PartitionKey(int partition, Object key) {
+    }
+
+    private final class GroupStats {
+        final AtomicLong total = new AtomicLong();
+        final AtomicLong superseded = new AtomicLong();
+        final Counter processedCounter;
+        final Counter supersededCounter;
+
+        GroupStats(String groupId) {
+            processedCounter = Counter.builder("kafka.consumer.coalescing.records")
+                    .tag("group", groupId).tag("outcome", "processed").register(meters);
+            supersededCounter = Counter.builder("kafka.consumer.coalescing.records")
+                    .tag("group", groupId).tag("outcome", "superseded").register(meters);
+            Gauge.builder("kafka.consumer.coalescing.ratio", this, GroupStats::ratio)
+                    .description("Share of polled records dropped because a newer record of the same key followed")
+                    .tag("group", groupId)
+                    .register(meters);
+        }
+
+        double ratio() {
+            long t = total.get();
+            return t == 0 ? 0 : (double) superseded.get() / t;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void adapt(List<Message<?>> messages, List<ConsumerRecord<Object, Object>> records, Acknowledgment ack,
+                      Consumer<?, ?> consumer, Callback<Object, Object> callback) {
+        String kafkaGroupId = consumer.groupMetadata().groupId();
+        String groupId = PartitionedConsumers.inboxGroupId(kafkaGroupId);
+        Priority lane = groupId.equals(kafkaGroupId) ? Priority.NORMAL : Priority.HIGH;
+        boolean[] newest = newestPerKey(groupId, records);
+        keepInvalid(records, newest);
+
+        int dropped = 0;
+        for (boolean n : newest) {
+            if (!n) dropped++;
+        }
+        var groupStats = stats.computeIfAbsent(groupId, GroupStats::new);
+        groupStats.total.addAndGet(records.size());
+        groupStats.superseded.addAndGet(dropped);
+        groupStats.processedCounter.increment(records.size() - dropped);
+        groupStats.supersededCounter.increment(dropped);
+        if (dropped > 0) {
+            log.debug("[COALESCE] group={} polled={} superseded={}", groupId, records.size(), dropped);
+        }
+
+        // (partition, key) whose survivor went through the listener
+        var applied = new HashSet<PartitionKey>();
+        for (int i = 0; i < records.size(); i++) {
+            if (!newest[i]) continue;
+            var record = records.get(i);
+            try {
+                callback.invoke(record, ack, consumer, messages.get(i));
+            } catch (RuntimeException e) {
+                try {
+                    markSuperseded(groupId, lane, records, newest, applied);
+                } catch (RuntimeException markFailed) {
+                    // the redelivered batch marks them: their survivors are duplicates by then
+                    log.warn("[COALESCE] cannot mark superseded records group={}: {}", groupId, markFailed.toString());
+                }
+                throw new BatchListenerFailedException("Coalesced record failed", e, record);
+            }
+            if (record.key() != null) applied.add(new PartitionKey(record.partition(), record.key()));
+        }
+        markSuperseded(groupId, lane, records, newest, applied);
+    }
+
+    /**
+     * Superseded records whose survivor went through, PROCESSED in one shard transaction per partition.
+     */
+    private void markSuperseded(String groupId, Priority lane, List<ConsumerRecord<Object, Object>> records,
+                                boolean[] newest, Set<PartitionKey> applied) {
+        var superseded = new TreeMap<Integer, List<EventRecord>>();
+        for (int i = 0; i < records.size(); i++) {
+            var record = typed(records.get(i));
+            if (newest[i] || !applied.contains(new PartitionKey(record.partition(), record.key()))) continue;
+            superseded.computeIfAbsent(record.partition(), p -> new ArrayList<>())
+                    .add(new EventRecord(EventIdUtil.resolveEventId(record), record));
+        }
+        superseded.forEach((partition, events) -> lanes.call(lane, () -> {
+            shards.route(groupId, partition).runInTransaction(() -> inbox.markProcessedBatch(groupId, events));
+            return null;
+        }));
+    }
+
+    /**
+     * Records that would be superseded but fail validation go to the listener, which parks them as poison.
+     */
+    private void keepInvalid(List<ConsumerRecord<Object, Object>> records, boolean[] newest) {
+        for (int i = 0; i < records.size(); i++) {
+            if (newest[i]) continue;
+            try {
+                processing.validate(typed(records.get(i)));
+            } catch (PoisonMessageException e) {
+                newest[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Scans backwards: the first occurrence of (partition, key) seen is the newest one.
+     */
+    private static boolean[] newestPerKey(String groupId, List<ConsumerRecord<Object, Object>> records) {
+        boolean[] newest = new boolean[records.size()];
+        var seen = new HashSet<PartitionKey>();
+        for (int i = records.size() - 1; i >= 0; i--) {
+            var record = records.get(i);
+            newest[i] = record.key() == null
+                    || !RedriveTargetUtil.isTargeted(record, groupId)
+                    || seen.add(new PartitionKey(record.partition(), record.key()));
+        }
+        return newest;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ConsumerRecord<String, Payload> typed(ConsumerRecord<Object, Object> record) {
+        return (ConsumerRecord<String, Payload>) (ConsumerRecord<?, ?>) record;
+    }
+}
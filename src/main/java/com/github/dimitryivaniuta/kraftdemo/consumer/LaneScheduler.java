@@ -0,0 +1,155 @@
+package com.github.dimitryivaniuta.kraftdemo.consumer;
+
+import com.github.dimitryivaniuta.kraftdemo.producer.Priority;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Weighted fair sharing of the processing path (inbox claim + side effect) between the priority lanes.
+ * <p>
+ * app.lanes.permits permits are split by app.lanes.high-weight / normal-weight into a guaranteed share per lane
+ * (at least one each). One permit = one listener thread in the DB path = one pooled connection, so keep
+ * app.lanes.permits below the connection pool size.
+ * - a lane below its share gets a free permit immediately
+ * - a lane may borrow idle permits beyond its share (work conserving), unless the other lane is waiting:
+ *   HIGH waiters always go before a NORMAL borrower, NORMAL waiters below their share before a HIGH borrower
+ * - no preemption: a borrowed permit comes back when its record is done
+ * <p>
+ * A NORMAL listener waiting for a permit does not poll, so while the high lane is busy the bulk lane stops
+ * fetching instead of piling records up in front of it.
+ * <p>
+ * Metrics: kafka.consumer.lane.wait{lane} (permit wait) and kafka.consumer.lane.latency{lane,group}
+ * (record timestamp to processed). Timers are registered once, up front for the known groups - the per-record
+ * path only looks them up.
+ */
+@Component
+public class LaneScheduler {
+
+    private static final int H = Priority.HIGH.ordinal();
+    private static final int N = Priority.NORMAL.ordinal();
+
+    private final MeterRegistry meters;
+    private final int permits;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition[] available = {lock.newCondition(), lock.newCondition()};
+    private final int[] share = new int[2];
+    private final int[] inUse = new int[2];
+    private final int[] waiting = new int[2];
+    private final Timer[] waitTimers = new Timer[2];
+    // group -> latency timer per lane (indexed by ordinal)
+    private final Map<String, Timer[]> latencyTimers = new ConcurrentHashMap<>();
+
+    public LaneScheduler(MeterRegistry meters,
+                         @Value("${app.lanes.permits:8}") int permits,
+                         @Value("${app.lanes.high-weight:3}") int highWeight,
+                         @Value("${app.lanes.normal-weight:1}") int normalWeight) {
+        this.meters = meters;
+        int total = Math.max(2, permits);
+        this.permits = total;
+        share[H] = Math.clamp(Math.round((float) total * highWeight / (highWeight + normalWeight)), 1, total - 1);
+        share[N] = total - share[H];
+        for (var lane : Priority.values()) {
+            waitTimers[lane.ordinal()] = Timer.builder("kafka.consumer.lane.wait")
+                    .description("Time a listener waited for a processing permit of its lane")
+                    .tag("lane", lane.name().toLowerCase())
+                    .register(meters);
+        }
+        for (String group : List.of(PartitionedConsumers.GROUP_A, PartitionedConsumers.GROUP_B)) {
+            latencyTimers.put(group, newLatencyTimers(group));
+        }
+    }
+
+    /**
+     * Runs the task holding one permit of the lane.
+     */
+    public <T> T call(Priority lane, Supplier<T> task) {
+        acquire(lane);
+        try {
+            return task.get();
+        } finally {
+            release(lane);
+        }
+    }
+
+    /**
+     * End-to-end latency of a processed record (producer/broker timestamp to now), per lane.
+     */
+    public void recordLatency(Priority lane, String groupId, ConsumerRecord<?, ?> record) {
+        long millis = System.currentTimeMillis() - record.timestamp();
+        if (record.timestamp() < 0 || millis < 0) return;
+        var timers = latencyTimers.get(groupId);
+        if (timers == null) timers = latencyTimers.computeIfAbsent(groupId, this::newLatencyTimers);
+        timers[lane.ordinal()].record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    private Timer[] newLatencyTimers(String groupId) {
+        var timers = new Timer[2];
+        for (var lane : Priority.values()) {
+            timers[lane.ordinal()] = Timer.builder("kafka.consumer.lane.latency")
+                    .description("Record timestamp to processed, per priority lane")
+                    .tag("lane", lane.name().toLowerCase())
+                    .tag("group", groupId)
+                    .register(meters);
+        }
+        return timers;
+    }
+
+    int share(Priority lane) {
+        return share[lane.ordinal()];
+    }
+
+    void acquire(Priority lane) {
+        int l = lane.ordinal();
+        long started = System.nanoTime();
+        lock.lock();
+        try {
+            waiting[l]++;
+            try {
+                while (!mayRun(l)) available[l].awaitUninterruptibly();
+            } finally {
+                waiting[l]--;
+            }
+            inUse[l]++;
+        } finally {
+            lock.unlock();
+        }
+        waitTimers[l].record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    void release(Priority lane) {
+        lock.lock();
+        try {
+            inUse[lane.ordinal()]--;
+            // the freed permit may go to either lane
+            available[H].signalAll();
+            available[N].signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean mayRun(int l) {
+        int free = permits - inUse[H] - inUse[N];
+        if (free <= 0) return false;
+        if (inUse[l] < share[l]) return true;
+
+        // borrowing: leave free permits to whoever the other lane is entitled to first
+        int other = 1 - l;
+        int reserved = other == H
+                ? waiting[H]
+                : Math.min(waiting[N], Math.max(0, share[N] - inUse[N]));
+        return free > reserved;
+    }
+}
@@ -1,16 +1,22 @@
 package com.github.dimitryivaniuta.kraftdemo.consumer;
 
 import com.github.dimitryivaniuta.kraftdemo.observe.ObservedMessageStore;
+import com.github.dimitryivaniuta.kraftdemo.observe.RecordEventLog;
+import com.github.dimitryivaniuta.kraftdemo.observe.StartupTimings;
+import com.github.dimitryivaniuta.kraftdemo.payload.Payload;
+import com.github.dimitryivaniuta.kraftdemo.producer.Priority;
+import com.github.dimitryivaniuta.kraftdemo.reliability.dedup.DedupIndex;
 import com.github.dimitryivaniuta.kraftdemo.reliability.service.InboxService;
 import com.github.dimitryivaniuta.kraftdemo.reliability.service.ProcessingService;
 import com.github.dimitryivaniuta.kraftdemo.reliability.util.EventIdUtil;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.RedriveTargetUtil;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.annotation.TopicPartition;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -20,14 +26,22 @@ import java.util.UUID;
  * - consumer #1 reads partition 0
  * - consumer #2 reads partitions 1 and 2
  * - group-b: 1 consumer reads all partitions
+ * High-priority lane (app.topic.high-priority-name, same 3 partitions):
+ * - one listener per group, one thread per partition (app.lanes.high-concurrency)
+ * - own Kafka group ids (group-a-high, group-b-high): offsets, rebalances and replays of one lane never touch
+ *   the other lane's containers
+ * - inbox rows are still written under group-a / group-b: an event delivered on both lanes is processed once per group
+ * - DB work of both lanes is scheduled by {@link LaneScheduler}
  * <p>
  * Delivery & reliability (production-grade approach):
  * - Kafka consumption: at-least-once
  * - DB side effects: exactly-once using Inbox + unique constraint (dedup)
  * - Retries: DefaultErrorHandler with exponential backoff
  * - Poison messages: stored in DB and offset is committed so consumer continues
+ * <p>
+ * Values arrive as {@link Payload} (raw bytes): duplicates are skipped on the header alone and the payload
+ * is only decoded if a log line or the observation store actually renders it.
  */
-@Slf4j
 @Component
 @RequiredArgsConstructor
 public class PartitionedConsumers {
@@ -35,13 +49,29 @@ public class PartitionedConsumers {
     public static final String GROUP_A = "group-a";
     public static final String GROUP_B = "group-b";
 
+    /**
+     * Kafka group id suffix of the high-priority lane; the inbox group is the id without it.
+     */
+    public static final String HIGH_LANE_SUFFIX = "-high";
+    public static final String GROUP_A_HIGH = GROUP_A + HIGH_LANE_SUFFIX;
+    public static final String GROUP_B_HIGH = GROUP_B + HIGH_LANE_SUFFIX;
+
     public static final String L_GROUP_A_P0 = "groupA-consumer-p0";
     public static final String L_GROUP_A_P12 = "groupA-consumer-p1p2";
     public static final String L_GROUP_B_ALL = "groupB-consumer-all";
+    public static final String L_GROUP_A_HIGH = "groupA-consumer-high";
+    public static final String L_GROUP_B_HIGH = "groupB-consumer-high";
+
+    public static final List<String> LISTENER_IDS =
+            List.of(L_GROUP_A_P0, L_GROUP_A_P12, L_GROUP_B_ALL, L_GROUP_A_HIGH, L_GROUP_B_HIGH);
 
     private final ObservedMessageStore store;
+    private final StartupTimings startupTimings;
+    private final RecordEventLog eventLog;
+    private final DedupIndex dedupIndex;
     private final InboxService inbox;
     private final ProcessingService processing;
+    private final LaneScheduler lanes;
 
     @KafkaListener(
             id = L_GROUP_A_P0,
@@ -49,8 +79,8 @@ public class PartitionedConsumers {
             topicPartitions = @TopicPartition(topic = "${app.topic.name}", partitions = {"0"}),
             clientIdPrefix = "groupA-p0"
     )
-    public void groupAConsumerPartition0(ConsumerRecord<String, String> record) {
-        handle(L_GROUP_A_P0, GROUP_A, record);
+    public void groupAConsumerPartition0(ConsumerRecord<String, Payload> record) {
+        handle(L_GROUP_A_P0, GROUP_A, Priority.NORMAL, record);
     }
 
     @KafkaListener(
@@ -59,8 +89,8 @@ public class PartitionedConsumers {
             topicPartitions = @TopicPartition(topic = "${app.topic.name}", partitions = {"1", "2"}),
             clientIdPrefix = "groupA-p1p2"
     )
-    public void groupAConsumerPartitions1And2(ConsumerRecord<String, String> record) {
-        handle(L_GROUP_A_P12, GROUP_A, record);
+    public void groupAConsumerPartitions1And2(ConsumerRecord<String, Payload> record) {
+        handle(L_GROUP_A_P12, GROUP_A, Priority.NORMAL, record);
     }
 
     @KafkaListener(
@@ -69,26 +99,85 @@ public class PartitionedConsumers {
             topics = "${app.topic.name}",
             clientIdPrefix = "groupB-all"
     )
-    public void groupBConsumerAllPartitions(ConsumerRecord<String, String> record) {
-        handle(L_GROUP_B_ALL, GROUP_B, record);
+    public void groupBConsumerAllPartitions(ConsumerRecord<String, Payload> record) {
+        handle(L_GROUP_B_ALL, GROUP_B, Priority.NORMAL, record);
+    }
+
+    @KafkaListener(
+            id = L_GROUP_A_HIGH,
+            groupId = GROUP_A_HIGH,
+            topicPartitions = @TopicPartition(topic = "${app.topic.high-priority-name}", partitions = {"0", "1", "2"}),
+            concurrency = "${app.lanes.high-concurrency:3}",
+            clientIdPrefix = "groupA-high"
+    )
+    public void groupAHighPriority(ConsumerRecord<String, Payload> record) {
+        handle(L_GROUP_A_HIGH, GROUP_A, Priority.HIGH, record);
     }
 
-    private void handle(String listenerId, String groupId, ConsumerRecord<String, String> record) {
+    @KafkaListener(
+            id = L_GROUP_B_HIGH,
+            groupId = GROUP_B_HIGH,
+            topics = "${app.topic.high-priority-name}",
+            concurrency = "${app.lanes.high-concurrency:3}",
+            clientIdPrefix = "groupB-high"
+    )
+    public void groupBHighPriority(ConsumerRecord<String, Payload> record) {
+        handle(L_GROUP_B_HIGH, GROUP_B, Priority.HIGH, record);
+    }
+
+    /**
+     * Kafka group id of a lane's listeners for an inbox group.
+     */
+    public static String kafkaGroupId(String inboxGroupId, Priority lane) {
+        return lane == Priority.HIGH ? inboxGroupId + HIGH_LANE_SUFFIX : inboxGroupId;
+    }
+
+    /**
+     * Inbox group (idempotency scope) of a Kafka group id - the same for both lanes of a group.
+     */
+    public static String inboxGroupId(String kafkaGroupId) {
+        return kafkaGroupId.endsWith(HIGH_LANE_SUFFIX)
+                ? kafkaGroupId.substring(0, kafkaGroupId.length() - HIGH_LANE_SUFFIX.length())
+                : kafkaGroupId;
+    }
+
+    private void handle(String listenerId, String groupId, Priority lane, ConsumerRecord<String, Payload> record) {
+        startupTimings.onRecord(listenerId);
         UUID eventId = EventIdUtil.resolveEventId(record);
+        // the local index follows the container's committed offsets => keyed by the Kafka group
+        String kafkaGroupId = kafkaGroupId(groupId, lane);
 
-        log.info("[{} / {}] eventId={} key={} value={} partition={} offset={}",
-                listenerId, groupId, eventId, record.key(), record.value(), record.partition(), record.offset());
+        // re-drive addressed to other groups: not ours to process, the offset just moves on
+        if (!RedriveTargetUtil.isTargeted(record, groupId)) {
+            eventLog.duplicate(listenerId, groupId, record, eventId, "redrive-other-group");
+            dedupIndex.onSkipped(kafkaGroupId, record);
+            return;
+        }
 
-        // Keep the original in-memory observation store (useful for quick local demo + some tests)
-        store.onRecord(listenerId, groupId, record);
+        // fast local tier (optional) - only ever answers "processed", misses go to the inbox
+        if (dedupIndex.isProcessed(kafkaGroupId, record, eventId)) {
+            eventLog.duplicate(listenerId, groupId, record, eventId, "local-index");
+            dedupIndex.onProcessed(kafkaGroupId, record, eventId);
+            return;
+        }
 
-        var claim = inbox.claim(eventId, groupId, record);
-        if (claim.isDuplicateProcessed()) {
-            log.info("[{} / {}] DUPLICATE already processed, skipping. eventId={} partition={} offset={}",
-                    listenerId, groupId, eventId, record.partition(), record.offset());
+        // inbox + side effect hold a permit (thread + DB connection) of the record's lane
+        boolean processed = lanes.call(lane, () -> {
+            var claim = inbox.claim(eventId, groupId, record);
+            if (claim.isDuplicateProcessed()) return false;
+            // in-memory observation store (quick local demo + some tests); duplicates never reach it
+            store.onRecord(listenerId, groupId, record);
+            processing.process(eventId, groupId, record);
+            return true;
+        });
+        dedupIndex.onProcessed(kafkaGroupId, record, eventId);
+        if (!processed) {
+            eventLog.duplicate(listenerId, groupId, record, eventId, "inbox");
             return;
         }
 
-        processing.process(eventId, groupId, record);
+        lanes.recordLatency(lane, groupId, record);
+        // sampled; the payload is only decoded if the line is emitted
+        eventLog.processed(listenerId, groupId, record, eventId);
     }
 }
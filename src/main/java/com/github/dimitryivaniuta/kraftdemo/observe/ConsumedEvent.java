@@ -1,10 +1,12 @@
 package com.github.dimitryivaniuta.kraftdemo.observe;
 
+import com.github.dimitryivaniuta.kraftdemo.payload.Payload;
+
 public record ConsumedEvent(
         String listenerId,
         String groupId,
         String key,
-        String value,
+        Payload value,
         int partition,
         long offset
 ) {
@@ -0,0 +1,213 @@
+package com.github.dimitryivaniuta.kraftdemo.observe;
+
+import com.github.dimitryivaniuta.kraftdemo.consumer.PartitionedConsumers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsSpec;
+import org.apache.kafka.clients.admin.ListOffsetsOptions;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.IsolationLevel;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.TopicPartitionOffset;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Per-partition consumer lag for the listeners declared in {@link PartitionedConsumers}.
+ * <p>
+ * Every refresh costs exactly two broker round trips through the shared AdminClient:
+ * - committed offsets of all groups (one listConsumerGroupOffsets call)
+ * - end offsets of all partitions (one listOffsets call, read_committed like our consumers)
+ * <p>
+ * Results are cached: REST and metrics read the last snapshot and never hit the broker.
+ * Consumption rate is derived from committed offset deltas between refreshes (smoothed with an EWMA).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConsumerLagMonitor {
+
+    private static final double RATE_SMOOTHING = 0.5;
+
+    private final AdminClient admin;
+    private final KafkaListenerEndpointRegistry registry;
+    private final MeterRegistry meters;
+
+    @Value("${app.topic.name}")
+    private String topic;
+
+    @Value("${app.lag.admin-timeout-ms:10000}")
+    private long adminTimeoutMs;
+
+    private final Map<RateKey, RateSample> rates = new ConcurrentHashMap<>();
+    private volatile List<PartitionLag> snapshot = List.of();
+
+    private MultiGauge lagGauge;
+    private MultiGauge rateGauge;
+    private MultiGauge catchUpGauge;
+
+    private record RateKey(String groupId, TopicPartition tp) {
+    }
+
+    private record RateSample(long committedOffset, long nanos, double recordsPerSecond) {
+    }
+
+    private record Target(String listenerId, String groupId, TopicPartition tp) {
+    }
+
+    @PostConstruct
+    void registerGauges() {
+        lagGauge = MultiGauge.builder("kafka.consumer.group.lag")
+                .description("End offset minus committed offset per group/partition")
+                .baseUnit("records")
+                .register(meters);
+        rateGauge = MultiGauge.builder("kafka.consumer.group.consume.rate")
+                .description("Committed offsets advanced per second per group/partition")
+                .baseUnit("records/s")
+                .register(meters);
+        catchUpGauge = MultiGauge.builder("kafka.consumer.group.catchup.time")
+                .description("Estimated time until lag reaches zero at the current rate (NaN while stalled)")
+                .baseUnit("seconds")
+                .register(meters);
+    }
+
+    /**
+     * Last computed lag per listener/group/partition (cached, no broker call).
+     */
+    public List<PartitionLag> snapshot() {
+        return snapshot;
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.lag.refresh-interval-ms:5000}",
+            fixedDelayString = "${app.lag.refresh-interval-ms:5000}"
+    )
+    public void refresh() {
+        try {
+            snapshot = compute();
+            publish(snapshot);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            // keep serving the previous snapshot
+            log.warn("[LAG] refresh failed: {}", ex.toString());
+        }
+    }
+
+    private List<PartitionLag> compute() throws InterruptedException, ExecutionException, TimeoutException {
+        Map<String, MessageListenerContainer> containers = new LinkedHashMap<>();
+        for (String listenerId : PartitionedConsumers.LISTENER_IDS) {
+            var container = registry.getListenerContainer(listenerId);
+            if (container != null) containers.put(listenerId, container);
+        }
+        if (containers.isEmpty()) return List.of();
+
+        Map<String, ListConsumerGroupOffsetsSpec> specs = containers.values().stream()
+                .map(MessageListenerContainer::getGroupId)
+                .distinct()
+                .collect(Collectors.toMap(g -> g, g -> new ListConsumerGroupOffsetsSpec()));
+        Map<String, Map<TopicPartition, OffsetAndMetadata>> committed = admin.listConsumerGroupOffsets(specs)
+                .all()
+                .get(adminTimeoutMs, TimeUnit.MILLISECONDS);
+
+        List<Target> targets = new ArrayList<>();
+        containers.forEach((listenerId, c) -> partitionsOf(c, committed.getOrDefault(c.getGroupId(), Map.of()))
+                .forEach(tp -> targets.add(new Target(listenerId, c.getGroupId(), tp))));
+        if (targets.isEmpty()) return List.of();
+
+        Map<TopicPartition, OffsetSpec> latest = targets.stream()
+                .map(Target::tp)
+                .distinct()
+                .collect(Collectors.toMap(tp -> tp, tp -> OffsetSpec.latest()));
+        var endOffsets = admin.listOffsets(latest, new ListOffsetsOptions(IsolationLevel.READ_COMMITTED))
+                .all()
+                .get(adminTimeoutMs, TimeUnit.MILLISECONDS);
+
+        long now = System.nanoTime();
+        Instant sampledAt = Instant.now();
+        List<PartitionLag> result = new ArrayList<>(targets.size());
+        for (var t : targets) {
+            var info = endOffsets.get(t.tp());
+            if (info == null) continue;
+
+            long end = info.offset();
+            var om = committed.getOrDefault(t.groupId(), Map.of()).get(t.tp());
+            long committedOffset = om != null ? om.offset() : -1;
+            long lag = Math.max(0, end - Math.max(0, committedOffset));
+
+            double rate = updateRate(new RateKey(t.groupId(), t.tp()), committedOffset, now);
+            Double catchUp = lag == 0 ? Double.valueOf(0.0) : rate > 0 ? Double.valueOf(lag / rate) : null;
+
+            result.add(new PartitionLag(t.listenerId(), t.groupId(), t.tp().topic(), t.tp().partition(),
+                    end, committedOffset, lag, rate, catchUp, sampledAt));
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Running assignment if the container has one; otherwise the statically configured partitions
+     * (group-a) or the partitions the group has committed for on the container's topics (group-b while it is
+     * rebalancing/stopped; a group has one listener per priority lane).
+     */
+    private Collection<TopicPartition> partitionsOf(MessageListenerContainer c, Map<TopicPartition, OffsetAndMetadata> committed) {
+        var assigned = c.getAssignedPartitions();
+        if (assigned != null && !assigned.isEmpty()) return assigned;
+
+        TopicPartitionOffset[] configured = c.getContainerProperties().getTopicPartitions();
+        if (configured != null) {
+            return Arrays.stream(configured).map(TopicPartitionOffset::getTopicPartition).toList();
+        }
+        String[] topics = c.getContainerProperties().getTopics();
+        Set<String> subscribed = topics != null ? Set.of(topics) : Set.of(topic);
+        return committed.keySet().stream().filter(tp -> subscribed.contains(tp.topic())).toList();
+    }
+
+    private double updateRate(RateKey key, long committedOffset, long nowNanos) {
+        var prev = rates.get(key);
+        double rate = 0.0;
+        if (prev != null && committedOffset >= prev.committedOffset() && nowNanos > prev.nanos()) {
+            double instant = (committedOffset - prev.committedOffset()) / ((nowNanos - prev.nanos()) / 1e9);
+            rate = RATE_SMOOTHING * instant + (1 - RATE_SMOOTHING) * prev.recordsPerSecond();
+        }
+        rates.put(key, new RateSample(committedOffset, nowNanos, rate));
+        return rate;
+    }
+
+    private void publish(List<PartitionLag> lags) {
+        lagGauge.register(rows(lags, PartitionLag::lag), true);
+        rateGauge.register(rows(lags, PartitionLag::recordsPerSecond), true);
+        catchUpGauge.register(rows(lags, l -> l.secondsToCatchUp() != null ? l.secondsToCatchUp() : Double.NaN), true);
+    }
+
+    private static List<MultiGauge.Row<?>> rows(List<PartitionLag> lags, ToDoubleFunction<PartitionLag> value) {
+        List<MultiGauge.Row<?>> rows = new ArrayList<>(lags.size());
+        for (var l : lags) {
+            var tags = Tags.of(
+                    "listener", l.listenerId(),
+                    "group", l.groupId(),
+                    "topic", l.topic(),
+                    "partition", String.valueOf(l.partition()));
+            rows.add(MultiGauge.Row.of(tags, value.applyAsDouble(l)));
+        }
+        return rows;
+    }
+}
@@ -1,23 +1,31 @@
 package com.github.dimitryivaniuta.kraftdemo.observe;
 
+import com.github.dimitryivaniuta.kraftdemo.payload.Payload;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Small in-memory store used by integration tests and for debugging.
  * In real systems you'd push metrics/logs and not keep records in-memory.
+ * <p>
+ * Bounded: only the newest app.observe.max-events-per-listener events are kept per listener. Values are copied -
+ * a consumed {@link Payload} is a view into the fetch buffer and would otherwise keep the whole fetch response alive.
  */
 @Component
 public class ObservedMessageStore {
 
-    private final Map<String, List<ConsumedEvent>> eventsByListener = new ConcurrentHashMap<>();
+    @Value("${app.observe.max-events-per-listener:1000}")
+    private int maxEventsPerListener = 1000;
+
+    private final Map<String, ArrayDeque<ConsumedEvent>> eventsByListener = new ConcurrentHashMap<>();
     private final Map<String, CountDownLatch> latchByListener = new ConcurrentHashMap<>();
 
     public void reset() {
@@ -29,9 +37,14 @@ public class ObservedMessageStore {
         latchByListener.put(listenerId, new CountDownLatch(expectedCount));
     }
 
-    public void onRecord(String listenerId, String groupId, ConsumerRecord<String, String> r) {
-        eventsByListener.computeIfAbsent(listenerId, __ -> new CopyOnWriteArrayList<>())
-                .add(new ConsumedEvent(listenerId, groupId, r.key(), r.value(), r.partition(), r.offset()));
+    public void onRecord(String listenerId, String groupId, ConsumerRecord<String, Payload> r) {
+        var value = r.value() == null ? null : Payload.of(r.value().toByteArray());
+        var event = new ConsumedEvent(listenerId, groupId, r.key(), value, r.partition(), r.offset());
+        var events = eventsByListener.computeIfAbsent(listenerId, __ -> new ArrayDeque<>());
+        synchronized (events) {
+            if (events.size() >= maxEventsPerListener) events.pollFirst();
+            events.addLast(event);
+        }
         var latch = latchByListener.get(listenerId);
         if (latch != null) latch.countDown();
     }
@@ -42,7 +55,14 @@ public class ObservedMessageStore {
         return latch.await(timeout, unit);
     }
 
+    /**
+     * Snapshot, oldest first.
+     */
     public List<ConsumedEvent> events(String listenerId) {
-        return eventsByListener.getOrDefault(listenerId, List.of());
+        var events = eventsByListener.get(listenerId);
+        if (events == null) return List.of();
+        synchronized (events) {
+            return List.copyOf(events);
+        }
     }
 }
@@ -0,0 +1,23 @@
+package com.github.dimitryivaniuta.kraftdemo.observe;
+
+import java.time.Instant;
+
+/**
+ * Lag of one listener/group on one partition.
+ * <p>
+ * committedOffset is -1 when the group has not committed yet (lag is then the end offset).
+ * secondsToCatchUp is null while the group makes no progress (rate 0) and has lag.
+ */
+public record PartitionLag(
+        String listenerId,
+        String groupId,
+        String topic,
+        int partition,
+        long endOffset,
+        long committedOffset,
+        long lag,
+        double recordsPerSecond,
+        Double secondsToCatchUp,
+        Instant sampledAt
+) {
+}
@@ -0,0 +1,150 @@
+package com.github.dimitryivaniuta.kraftdemo.observe;
+
+import com.github.dimitryivaniuta.kraftdemo.payload.Payload;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Structured per-record event log of the consume path (logger {@value #LOGGER}, async appender in
+ * logback-spring.xml).
+ * <p>
+ * - regular "processed" lines are rate limited per (group, partition) - a partition is owned by exactly one
+ * listener of a group - to app.event-log.lines-per-second
+ * - anomalies (duplicate, retry, recovered) are always logged
+ * - every emitted line carries {@code suppressed=n}: regular lines dropped for that partition since the
+ * previous emitted line
+ * - payloads are passed as lazy previews: nothing is decoded or formatted unless the line is emitted
+ * <p>
+ * The hot path (suppressed line) allocates nothing: buckets are found by group and partition index.
+ */
+@Component
+public class RecordEventLog {
+
+    public static final String LOGGER = "kraftdemo.events";
+
+    private static final Logger log = LoggerFactory.getLogger(LOGGER);
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Value("${app.event-log.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.event-log.lines-per-second:10}")
+    private int linesPerSecond;
+
+    @Value("${app.event-log.payload-preview-bytes:256}")
+    private int previewBytes;
+
+    private final Map<String, Bucket[]> buckets = new ConcurrentHashMap<>();
+
+    private static final class Bucket {
+        long windowStart = System.nanoTime() - WINDOW_NANOS;
+        int emitted;
+        long suppressed;
+    }
+
+    public void processed(String listenerId, String groupId, ConsumerRecord<?, ?> record, UUID eventId) {
+        if (!enabled || !log.isInfoEnabled()) return;
+        long suppressed = trySample(groupId, record.partition());
+        if (suppressed < 0) return;
+        log.info("event=processed listener={} group={} partition={} offset={} eventId={} key={} value={} suppressed={}",
+                listenerId, groupId, record.partition(), record.offset(), eventId, record.key(),
+                preview(record.value()), suppressed);
+    }
+
+    public void duplicate(String listenerId, String groupId, ConsumerRecord<?, ?> record, UUID eventId, String source) {
+        if (!enabled || !log.isInfoEnabled()) return;
+        log.info("event=duplicate listener={} group={} partition={} offset={} eventId={} source={} suppressed={}",
+                listenerId, groupId, record.partition(), record.offset(), eventId, source,
+                drainSuppressed(groupId, record.partition()));
+    }
+
+    public void retry(String groupId, ConsumerRecord<?, ?> record, int attempt, Exception ex) {
+        if (!enabled || !log.isWarnEnabled()) return;
+        log.warn("event=retry group={} partition={} offset={} attempt={} ex={} suppressed={}",
+                groupId, record.partition(), record.offset(), attempt, ex.toString(),
+                drainSuppressed(groupId, record.partition()));
+    }
+
+    public void recovered(String groupId, ConsumerRecord<?, ?> record, UUID eventId, Exception ex) {
+        // poison is always worth a line, even with the event log switched off
+        log.error("event=recovered group={} topic={} partition={} offset={} eventId={} ex={} value={} suppressed={}",
+                groupId, record.topic(), record.partition(), record.offset(), eventId, ex.toString(),
+                preview(record.value()), drainSuppressed(groupId, record.partition()));
+    }
+
+    /**
+     * @return suppressed count to report if the line may be emitted, -1 if it is suppressed
+     */
+    private long trySample(String groupId, int partition) {
+        var bucket = bucket(groupId, partition);
+        synchronized (bucket) {
+            long now = System.nanoTime();
+            if (now - bucket.windowStart >= WINDOW_NANOS) {
+                bucket.windowStart = now;
+                bucket.emitted = 0;
+            }
+            if (bucket.emitted >= linesPerSecond) {
+                bucket.suppressed++;
+                return -1;
+            }
+            bucket.emitted++;
+            long suppressed = bucket.suppressed;
+            bucket.suppressed = 0;
+            return suppressed;
+        }
+    }
+
+    private long drainSuppressed(String groupId, int partition) {
+        var bucket = bucket(groupId, partition);
+        synchronized (bucket) {
+            long suppressed = bucket.suppressed;
+            bucket.suppressed = 0;
+            return suppressed;
+        }
+    }
+
+    private Bucket bucket(String groupId, int partition) {
+        if (groupId == null) groupId = "unknown-group";
+        var perPartition = buckets.get(groupId);
+        if (perPartition == null || partition >= perPartition.length) {
+            perPartition = grow(groupId, partition);
+        }
+        return perPartition[partition];
+    }
+
+    private Bucket[] grow(String groupId, int partition) {
+        return buckets.compute(groupId, (g, current) -> {
+            if (current != null && partition < current.length) return current;
+            int from = current == null ? 0 : current.length;
+            var grown = current == null ? new Bucket[partition + 1] : Arrays.copyOf(current, partition + 1);
+            for (int i = from; i < grown.length; i++) grown[i] = new Bucket();
+            return grown;
+        });
+    }
+
+    private Object preview(Object value) {
+        return value instanceof Payload payload ? new Preview(payload, previewBytes) : value;
+    }
+
+    /**
+     * Decodes (at most maxBytes of) the payload only when a logger renders the argument.
+     */
+    private record Preview(Payload payload, int maxBytes) {
+        @Override
+        public String toString() {
+            if (payload.size() <= maxBytes) return payload.asString();
+            var head = payload.buffer().limit(maxBytes);
+            return StandardCharsets.UTF_8.decode(head) + "...(" + payload.size() + " bytes)";
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.dimitryivaniuta.kraftdemo.observe;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Startup milestones measured as JVM uptime:
+ * - application ready (context refreshed, listener containers started)
+ * - first record consumed (consumer joined its group and fetched) - this is what bounds lag spikes on restarts
+ */
+@Slf4j
+@Component
+public class StartupTimings {
+
+    private final AtomicBoolean firstRecordSeen = new AtomicBoolean();
+
+    private volatile Long readyUptimeMs;
+    private volatile Long firstRecordUptimeMs;
+
+    @EventListener(ApplicationReadyEvent.class)
+    void onReady() {
+        readyUptimeMs = uptimeMs();
+        log.info("[STARTUP] application ready after {} ms (JVM uptime)", readyUptimeMs);
+    }
+
+    /**
+     * Called for every consumed record; only the first call does any work.
+     */
+    public void onRecord(String listenerId) {
+        if (firstRecordUptimeMs != null || !firstRecordSeen.compareAndSet(false, true)) return;
+
+        firstRecordUptimeMs = uptimeMs();
+        log.info("[STARTUP] first record consumed by {} after {} ms (JVM uptime)", listenerId, firstRecordUptimeMs);
+    }
+
+    public Optional<Long> readyUptimeMs() {
+        return Optional.ofNullable(readyUptimeMs);
+    }
+
+    public Optional<Long> firstRecordUptimeMs() {
+        return Optional.ofNullable(firstRecordUptimeMs);
+    }
+
+    private static long uptimeMs() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
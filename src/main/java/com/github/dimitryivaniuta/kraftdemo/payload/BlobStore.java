@@ -0,0 +1,28 @@
+package com.github.dimitryivaniuta.kraftdemo.payload;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Content-addressed storage for claim-checked payloads ({@link ClaimCheck}).
+ * <p>
+ * References are derived from the content ({@code sha256:<hex>}), so storing the same payload twice yields the
+ * same reference and one stored copy. {@link FileSystemBlobStore} is the local implementation; an object store
+ * (S3, GCS, ...) can replace it by providing another BlobStore bean.
+ */
+public interface BlobStore {
+
+    /**
+     * Streams the content into the store.
+     *
+     * @return content reference to put on the record
+     */
+    String put(InputStream content) throws IOException;
+
+    /**
+     * Opens the content for streaming; the caller closes the stream.
+     *
+     * @throws java.io.FileNotFoundException if nothing is stored under the reference
+     */
+    InputStream open(String reference) throws IOException;
+}
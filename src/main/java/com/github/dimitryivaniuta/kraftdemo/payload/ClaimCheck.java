@@ -0,0 +1,126 @@
+package com.github.dimitryivaniuta.kraftdemo.payload;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Claim-check for large values: above app.claim-check.threshold-bytes the value goes to the {@link BlobStore}
+ * and the record carries the reference - as value (so DB columns, logs and state stores hold the short
+ * reference text) and in the {@value #HEADER} header (which marks the record as claim-checked).
+ * <p>
+ * Consumers never load the blob eagerly: {@link #openValue} streams it, {@link #containsAscii} scans it
+ * chunk by chunk.
+ */
+@Component
+@RequiredArgsConstructor
+public class ClaimCheck {
+
+    public static final String HEADER = "x-claim-check";
+
+    private static final int CHUNK = 8192;
+
+    private final BlobStore blobs;
+
+    // <= 0 disables claim-checks on the producer side (consumers always resolve references)
+    @Value("${app.claim-check.threshold-bytes:262144}")
+    private int thresholdBytes;
+
+    /**
+     * Producer side: returns the value to send - the reference if the value was claim-checked (and adds the
+     * header), the value itself otherwise.
+     */
+    public String checkIn(String value, Headers headers) {
+        if (value == null || thresholdBytes <= 0) return value;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= thresholdBytes) return value;
+
+        try {
+            String reference = blobs.put(new ByteArrayInputStream(bytes));
+            headers.add(new RecordHeader(HEADER, reference.getBytes(StandardCharsets.US_ASCII)));
+            return reference;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot store claim-checked value", e);
+        }
+    }
+
+    public static Optional<String> reference(ConsumerRecord<?, ?> record) {
+        Header h = record.headers().lastHeader(HEADER);
+        return h == null || h.value() == null
+                ? Optional.empty()
+                : Optional.of(new String(h.value(), StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Streams the real value (the blob for claim-checked records); the caller closes the stream.
+     */
+    public InputStream openValue(ConsumerRecord<?, Payload> record) throws IOException {
+        var reference = reference(record);
+        if (reference.isPresent()) return blobs.open(reference.get());
+        var value = record.value();
+        return value == null ? InputStream.nullInputStream() : new ByteBufferInputStream(value.buffer());
+    }
+
+    /**
+     * {@link Payload#containsAscii} over the real value; claim-checked values are scanned in chunks
+     * (needle matches across chunk boundaries are kept by carrying the chunk tail over).
+     */
+    public boolean containsAscii(ConsumerRecord<?, Payload> record, byte[] asciiNeedle) {
+        if (reference(record).isEmpty()) {
+            return record.value() != null && record.value().containsAscii(asciiNeedle);
+        }
+        if (asciiNeedle.length == 0) return true;
+        int overlap = asciiNeedle.length - 1;
+        byte[] buf = new byte[CHUNK + overlap];
+        try (var in = openValue(record)) {
+            int carry = 0;
+            int n;
+            while ((n = in.read(buf, carry, CHUNK)) > 0) {
+                int len = carry + n;
+                if (Payload.wrap(ByteBuffer.wrap(buf, 0, len)).containsAscii(asciiNeedle)) return true;
+                carry = Math.min(overlap, len);
+                System.arraycopy(buf, len - carry, buf, 0, carry);
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read claim-checked value " + reference(record).orElse(""), e);
+        }
+    }
+
+    /**
+     * InputStream over the payload's bytes without copying them.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.dimitryivaniuta.kraftdemo.payload;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Local {@link BlobStore}: {@code <directory>/ab/cd/<sha256>}.
+ * <p>
+ * Content is streamed into a temp file while hashing, then moved to its hash path; if the hash is already
+ * stored the temp file is dropped (dedup). Moves are atomic, so readers never see partial blobs.
+ * <p>
+ * Only usable when producer and consumers share the directory (single host / shared volume).
+ */
+@Component
+public class FileSystemBlobStore implements BlobStore {
+
+    private static final String PREFIX = "sha256:";
+    private static final Pattern REFERENCE = Pattern.compile("sha256:[0-9a-f]{64}");
+
+    @Value("${app.claim-check.directory:${java.io.tmpdir}/kraft-demo-blobs}")
+    private Path directory;
+
+    @Override
+    public String put(InputStream content) throws IOException {
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, "upload-", ".tmp");
+        try {
+            var digest = sha256();
+            try (var in = new DigestInputStream(content, digest)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = path(hash);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException ignore) {
+                    // stored concurrently by another producer - same content
+                }
+            }
+            return PREFIX + hash;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public InputStream open(String reference) throws IOException {
+        if (reference == null || !REFERENCE.matcher(reference).matches()) {
+            throw new IllegalArgumentException("Not a blob reference: " + reference);
+        }
+        try {
+            return Files.newInputStream(path(reference.substring(PREFIX.length())));
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("Blob not found: " + reference);
+        }
+    }
+
+    private Path path(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.dimitryivaniuta.kraftdemo.payload;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Record value as raw UTF-8 bytes with lazy decoding.
+ * <p>
+ * The consume path only needs byte-level checks (blank? contains "POISON"?) and the dedup decision,
+ * so the value is never decoded into a String unless something actually asks for it ({@link #asString()}).
+ * Duplicates are skipped without materializing the payload at all.
+ * <p>
+ * Byte-level search is exact for ASCII needles: in UTF-8 an ASCII byte never occurs inside a multi-byte sequence.
+ */
+public final class Payload {
+
+    private final ByteBuffer bytes;
+    private String decoded;
+
+    private Payload(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Wraps the buffer without copying (position..limit is the payload).
+     */
+    public static Payload wrap(ByteBuffer buffer) {
+        return new Payload(buffer.slice());
+    }
+
+    public static Payload of(byte[] bytes) {
+        return new Payload(ByteBuffer.wrap(bytes));
+    }
+
+    public static Payload of(String value) {
+        var payload = of(value.getBytes(StandardCharsets.UTF_8));
+        payload.decoded = value;
+        return payload;
+    }
+
+    public int size() {
+        return bytes.remaining();
+    }
+
+    /**
+     * Same result as {@code asString().isBlank()}; decodes only if a non-ASCII byte shows up before any
+     * non-whitespace ASCII byte.
+     */
+    public boolean isBlank() {
+        for (int i = 0, n = bytes.remaining(); i < n; i++) {
+            byte b = bytes.get(i);
+            if (b < 0) return asString().isBlank();
+            if (!Character.isWhitespace(b)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Byte-level substring search; {@code asciiNeedle} must be ASCII.
+     */
+    public boolean containsAscii(byte[] asciiNeedle) {
+        int n = bytes.remaining();
+        int m = asciiNeedle.length;
+        if (m == 0) return true;
+
+        byte first = asciiNeedle[0];
+        outer:
+        for (int i = 0; i <= n - m; i++) {
+            if (bytes.get(i) != first) continue;
+            for (int j = 1; j < m; j++) {
+                if (bytes.get(i + j) != asciiNeedle[j]) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Bytes for writers that take an array (e.g. JDBC bytea); copies only if the payload is a view into a
+     * larger buffer.
+     */
+    public byte[] toByteArray() {
+        if (bytes.hasArray() && bytes.arrayOffset() == 0 && bytes.array().length == bytes.remaining()) {
+            return bytes.array();
+        }
+        var copy = new byte[bytes.remaining()];
+        bytes.get(0, copy);
+        return copy;
+    }
+
+    /**
+     * Bytes for a UTF-8 text column (bound as bytea, decoded by Postgres): the raw bytes if they are valid UTF-8,
+     * otherwise re-encoded from {@link #asString()} - invalid sequences become U+FFFD, exactly what the former
+     * String-based write stored, instead of failing the insert in the database.
+     */
+    public byte[] utf8Bytes() {
+        return isValidUtf8() ? toByteArray() : asString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Strict UTF-8 check (no overlongs, no surrogates, max U+10FFFF) - same rules as Postgres and the JDK decoder.
+     */
+    boolean isValidUtf8() {
+        int n = bytes.remaining();
+        int i = 0;
+        while (i < n) {
+            int c = bytes.get(i) & 0xFF;
+            if (c < 0x80) {
+                i++;
+                continue;
+            }
+            int len;
+            if (c >= 0xC2 && c <= 0xDF) len = 1;
+            else if (c >= 0xE0 && c <= 0xEF) len = 2;
+            else if (c >= 0xF0 && c <= 0xF4) len = 3;
+            else return false;
+            if (i + len >= n) return false;
+
+            int c1 = bytes.get(i + 1) & 0xFF;
+            if ((c == 0xE0 && c1 < 0xA0) || (c == 0xED && c1 > 0x9F)
+                    || (c == 0xF0 && c1 < 0x90) || (c == 0xF4 && c1 > 0x8F)) {
+                return false;
+            }
+            for (int k = 1; k <= len; k++) {
+                if ((bytes.get(i + k) & 0xC0) != 0x80) return false;
+            }
+            i += len + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Read-only view of the raw bytes.
+     */
+    public ByteBuffer buffer() {
+        return bytes.asReadOnlyBuffer();
+    }
+
+    /**
+     * Lazily decoded UTF-8 value (cached).
+     */
+    public String asString() {
+        var s = decoded;
+        if (s == null) {
+            var copy = new byte[bytes.remaining()];
+            bytes.get(0, copy);
+            s = new String(copy, StandardCharsets.UTF_8);
+            decoded = s;
+        }
+        return s;
+    }
+
+    /**
+     * Decodes - only evaluated when a log line / debugger actually renders the payload.
+     */
+    @Override
+    public String toString() {
+        return asString();
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.dimitryivaniuta.kraftdemo.payload;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Value deserializer producing {@link Payload}: no UTF-8 decoding on the poll thread.
+ * <p>
+ * The ByteBuffer variant (used by the fetcher) wraps the record's slice of the fetch buffer without copying.
+ */
+public class PayloadDeserializer implements Deserializer<Payload> {
+
+    @Override
+    public Payload deserialize(String topic, byte[] data) {
+        return data == null ? null : Payload.of(data);
+    }
+
+    @Override
+    public Payload deserialize(String topic, Headers headers, ByteBuffer data) {
+        return data == null ? null : Payload.wrap(data);
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.dimitryivaniuta.kraftdemo.persistence.shard;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * One database holding inbox, poison and side-effect rows for a subset of (consumer group, partition).
+ * <p>
+ * Transactions are demarcated per shard (programmatically) because @Transactional is bound to the primary
+ * transaction manager only.
+ */
+public final class Shard {
+
+    private final int index;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final TransactionTemplate newTx;
+
+    public Shard(int index, JdbcTemplate jdbc, PlatformTransactionManager transactionManager) {
+        this.index = index;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.newTx = new TransactionTemplate(transactionManager);
+        this.newTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public JdbcTemplate jdbc() {
+        return jdbc;
+    }
+
+    /**
+     * Runs in this shard's transaction (joins an existing one).
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        return tx.execute(status -> work.get());
+    }
+
+    public void runInTransaction(Runnable work) {
+        tx.executeWithoutResult(status -> work.run());
+    }
+
+    /**
+     * Runs in a new transaction on this shard, independent of any transaction in progress.
+     */
+    public void runInNewTransaction(Runnable work) {
+        newTx.executeWithoutResult(status -> work.run());
+    }
+
+    public <T> T inNewTransaction(Supplier<T> work) {
+        return newTx.execute(status -> work.get());
+    }
+
+    @Override
+    public String toString() {
+        return "shard-" + index;
+    }
+}
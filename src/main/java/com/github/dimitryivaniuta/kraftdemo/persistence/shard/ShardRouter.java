@@ -0,0 +1,44 @@
+package com.github.dimitryivaniuta.kraftdemo.persistence.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Routes inbox / poison / side-effect writes to a shard by a stable hash of (consumer group, partition).
+ * <p>
+ * The key deliberately excludes the consumer instance, so routing does not change when a partition is
+ * reassigned to another consumer or node. Dedup is per group, so an event id must always arrive on the same
+ * partition number (true for keyed records and for producers that pin the partition).
+ * Changing the number of shards re-routes keys and requires moving data.
+ */
+public class ShardRouter implements DisposableBean {
+
+    private final List<Shard> shards;
+    private final List<HikariDataSource> ownedDataSources;
+
+    public ShardRouter(List<Shard> shards, List<HikariDataSource> ownedDataSources) {
+        if (shards.isEmpty()) throw new IllegalArgumentException("At least one shard is required");
+        this.shards = List.copyOf(shards);
+        this.ownedDataSources = List.copyOf(ownedDataSources);
+    }
+
+    public Shard route(String groupId, int partition) {
+        if (shards.size() == 1) return shards.getFirst();
+
+        byte[] key = (groupId + "|" + partition).getBytes(StandardCharsets.UTF_8);
+        return shards.get(Utils.toPositive(Utils.murmur2(key)) % shards.size());
+    }
+
+    public List<Shard> all() {
+        return shards;
+    }
+
+    @Override
+    public void destroy() {
+        ownedDataSources.forEach(HikariDataSource::close);
+    }
+}
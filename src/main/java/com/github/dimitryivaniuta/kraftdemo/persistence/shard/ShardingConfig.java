@@ -0,0 +1,67 @@
+package com.github.dimitryivaniuta.kraftdemo.persistence.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+
+/**
+ * Builds the shard list: shard 0 reuses the primary datasource (and its transaction manager),
+ * additional shards get their own Hikari pool and are migrated with the same Flyway scripts.
+ * <p>
+ * Extra datasources are deliberately not exposed as beans, so Boot's single-datasource auto-configuration
+ * (JPA, Flyway for shard 0) stays untouched.
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean
+    public ShardRouter shardRouter(
+            JdbcTemplate jdbc,
+            PlatformTransactionManager transactionManager,
+            ShardingProperties props,
+            @Value("${spring.flyway.enabled:true}") boolean migrate
+    ) {
+        var shards = new ArrayList<Shard>();
+        shards.add(new Shard(0, jdbc, transactionManager));
+
+        var owned = new ArrayList<HikariDataSource>();
+        for (var cfg : props.shards()) {
+            int index = shards.size();
+            var ds = dataSource(index, cfg);
+            owned.add(ds);
+
+            if (migrate) {
+                Flyway.configure()
+                        .dataSource(ds)
+                        .locations("classpath:db/migration")
+                        .load()
+                        .migrate();
+            }
+            shards.add(new Shard(index, new JdbcTemplate(ds), new DataSourceTransactionManager(ds)));
+        }
+
+        log.info("[SHARDS] inbox/side-effect storage uses {} shard(s)", shards.size());
+        return new ShardRouter(shards, owned);
+    }
+
+    private static HikariDataSource dataSource(int index, ShardingProperties.ShardDataSource cfg) {
+        var ds = new HikariDataSource();
+        ds.setPoolName("shard-" + index);
+        ds.setJdbcUrl(cfg.url());
+        ds.setUsername(cfg.username());
+        ds.setPassword(cfg.password());
+        if (cfg.maximumPoolSize() != null) ds.setMaximumPoolSize(cfg.maximumPoolSize());
+        return ds;
+    }
+}
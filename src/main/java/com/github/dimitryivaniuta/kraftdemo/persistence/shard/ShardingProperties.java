@@ -0,0 +1,22 @@
+package com.github.dimitryivaniuta.kraftdemo.persistence.shard;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/**
+ * Additional inbox/side-effect shards.
+ * <p>
+ * Shard 0 is always the primary datasource (spring.datasource); each entry here adds shard 1..N
+ * with its own connection pool. An empty list means a single shard.
+ */
+@ConfigurationProperties(prefix = "app.sharding")
+public record ShardingProperties(List<ShardDataSource> shards) {
+
+    public ShardingProperties {
+        shards = shards == null ? List.of() : List.copyOf(shards);
+    }
+
+    public record ShardDataSource(String url, String username, String password, Integer maximumPoolSize) {
+    }
+}
@@ -1,24 +1,34 @@
 package com.github.dimitryivaniuta.kraftdemo.producer;
 
+import com.github.dimitryivaniuta.kraftdemo.payload.ClaimCheck;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.EventIdUtil;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.RedriveTargetUtil;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
 public class DemoProducer {
 
     private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ClaimCheck claimCheck;
 
     @Value("${app.topic.name}")
     private String topic;
 
+    @Value("${app.topic.high-priority-name}")
+    private String highPriorityTopic;
+
     /**
      * Sends a message.
      * <p>
@@ -28,16 +38,27 @@ public class DemoProducer {
      * <p>
      * NOTE: end-to-end exactly-once still requires idempotent processing on the consumer side
      * (implemented via Inbox + DB dedup).
+     * <p>
+     * Values above app.claim-check.threshold-bytes are claim-checked: the record carries a blob reference.
      *
      * @return eventId used for dedup downstream
      */
     public UUID send(String key, String value, Integer partition, UUID eventIdOrNull) {
+        return send(key, value, partition, eventIdOrNull, Priority.NORMAL);
+    }
+
+    /**
+     * Sends to the topic of the priority lane. Lane topics have the same partition count, so a key (or an explicit
+     * partition) maps to the same partition number - and inbox shard - in every lane.
+     */
+    public UUID send(String key, String value, Integer partition, UUID eventIdOrNull, Priority priority) {
         UUID eventId = eventIdOrNull != null ? eventIdOrNull : UUID.randomUUID();
 
-        var record = new ProducerRecord<String, String>(topic, partition, key, value);
+        var headers = new RecordHeaders();
+        var record = new ProducerRecord<>(topicOf(priority), partition, key, claimCheck.checkIn(value, headers), headers);
 
         // stable idempotency key for consumers
-        record.headers().add(new RecordHeader("x-event-id", eventId.toString().getBytes(StandardCharsets.UTF_8)));
+        record.headers().add(new RecordHeader(EventIdUtil.EVENT_ID_HEADER, eventId.toString().getBytes(StandardCharsets.UTF_8)));
 
         // purely for tooling visibility
         record.headers().add(new RecordHeader("x-demo", "kraft-demo".getBytes(StandardCharsets.UTF_8)));
@@ -45,4 +66,26 @@ public class DemoProducer {
         kafkaTemplate.send(record);
         return eventId;
     }
+
+    public String topicOf(Priority priority) {
+        return priority == Priority.HIGH ? highPriorityTopic : topic;
+    }
+
+    /**
+     * Re-publishes a parked record as it was: original partition, key, value (or claim-check reference) and event id.
+     * Only the given groups process it, see {@link RedriveTargetUtil}.
+     *
+     * @return completes when the broker acknowledged the record
+     */
+    public CompletableFuture<?> resend(String topic, int partition, String key, String value, UUID eventId,
+                                       String claimCheckOrNull, Collection<String> targetGroupIds) {
+        var record = new ProducerRecord<String, String>(topic, partition, key, value);
+        record.headers().add(new RecordHeader(EventIdUtil.EVENT_ID_HEADER, eventId.toString().getBytes(StandardCharsets.UTF_8)));
+        if (claimCheckOrNull != null) {
+            record.headers().add(new RecordHeader(ClaimCheck.HEADER, claimCheckOrNull.getBytes(StandardCharsets.US_ASCII)));
+        }
+        record.headers().add(new RecordHeader("x-redrive", "true".getBytes(StandardCharsets.UTF_8)));
+        record.headers().add(new RecordHeader(RedriveTargetUtil.REDRIVE_GROUPS_HEADER, RedriveTargetUtil.encode(targetGroupIds)));
+        return kafkaTemplate.send(record);
+    }
 }
@@ -0,0 +1,9 @@
+package com.github.dimitryivaniuta.kraftdemo.producer;
+
+/**
+ * Priority lane of an event: each lane is its own topic (app.topic.name / app.topic.high-priority-name) with its
+ * own listeners, so latency-sensitive events never queue behind bulk records in the same partition.
+ */
+public enum Priority {
+    NORMAL, HIGH
+}
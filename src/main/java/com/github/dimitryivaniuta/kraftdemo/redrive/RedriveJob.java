@@ -0,0 +1,64 @@
+package com.github.dimitryivaniuta.kraftdemo.redrive;
+
+import com.github.dimitryivaniuta.kraftdemo.api.RedriveRequest;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Mutable state of one re-drive run.
+ * <p>
+ * Written by the single re-drive worker thread, read by REST callers via {@link #snapshot()}.
+ */
+@Getter
+class RedriveJob {
+
+    private final UUID id = UUID.randomUUID();
+    private final RedriveRequest request;
+
+    private volatile RedriveStatus.State state = RedriveStatus.State.PENDING;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    // single writer (worker) => plain volatile increments are safe
+    private volatile long selected;
+    private volatile long republished;
+    private volatile long duplicatesSkipped;
+
+    RedriveJob(RedriveRequest request) {
+        this.request = request;
+    }
+
+    void running(long selectedRows) {
+        selected = selectedRows;
+        startedAt = Instant.now();
+        state = RedriveStatus.State.RUNNING;
+    }
+
+    void onBatch(int republishedCount, int duplicateCount) {
+        republished += republishedCount;
+        duplicatesSkipped += duplicateCount;
+    }
+
+    void completed() {
+        finishedAt = Instant.now();
+        state = RedriveStatus.State.COMPLETED;
+    }
+
+    void failed(Exception ex) {
+        finishedAt = Instant.now();
+        error = ex.toString();
+        state = RedriveStatus.State.FAILED;
+    }
+
+    boolean isActive() {
+        return state == RedriveStatus.State.PENDING || state == RedriveStatus.State.RUNNING;
+    }
+
+    RedriveStatus snapshot() {
+        return new RedriveStatus(id, request, state, startedAt, finishedAt, error,
+                selected, republished, duplicatesSkipped);
+    }
+}
@@ -0,0 +1,185 @@
+package com.github.dimitryivaniuta.kraftdemo.redrive;
+
+import com.github.dimitryivaniuta.kraftdemo.api.RedriveRequest;
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.Shard;
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.ShardRouter;
+import com.github.dimitryivaniuta.kraftdemo.producer.DemoProducer;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.InboxService;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.PoisonFilter;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.PoisonMessageService;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.PoisonRow;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.EventIdUtil;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.RateLimiter;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk re-drive of parked poison messages once the underlying bug is fixed.
+ * <p>
+ * How it works, per shard and batch (keyset pagination over kafka_poison_message ids, up to the highest id at the
+ * start of the job - a re-driven record failing again while the job runs parks a new row for the next re-drive):
+ * - matching inbox rows go FAILED -> PROCESSING first, so a quick re-failure of the re-driven record is not
+ * overwritten afterwards
+ * - records are re-published to their original topic/partition with the original key, value and x-event-id,
+ * addressed to the groups whose rows were selected (x-redrive-groups): other groups skip the record, so a re-drive
+ * for one group never makes the others consume the event again. An event parked by several groups of one batch
+ * is sent once for all of them; groups that processed the event meanwhile skip it via the inbox
+ * - after the broker acknowledged the batch the poison rows that were sent are marked re-driven; rows of an
+ * (event, group) already sent by this job are only counted as skipped
+ * <p>
+ * A crash between publish and marking re-drives the batch again later - harmless, consumers dedup by event id.
+ * Throughput is capped by a rate limiter so a large re-drive does not swamp the live consumers.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RedriveService {
+
+    private final ShardRouter shards;
+    private final PoisonMessageService poison;
+    private final InboxService inbox;
+    private final DemoProducer producer;
+
+    private final Map<UUID, RedriveJob> jobs = new ConcurrentHashMap<>();
+    // re-drives run one at a time, off the request thread
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "poison-redrive"));
+
+    @Value("${app.redrive.batch-size:100}")
+    private int defaultBatchSize;
+
+    @Value("${app.redrive.default-max-records-per-second:200}")
+    private int defaultMaxRecordsPerSecond;
+
+    @Value("${app.redrive.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    private record Delivery(UUID eventId, String groupId) {
+    }
+
+    /**
+     * Schedules a re-drive.
+     *
+     * @return empty if a re-drive is already pending/running
+     */
+    public synchronized Optional<RedriveStatus> start(RedriveRequest request) {
+        if (jobs.values().stream().anyMatch(RedriveJob::isActive)) return Optional.empty();
+
+        var job = new RedriveJob(request);
+        jobs.put(job.getId(), job);
+        executor.submit(() -> run(job));
+        return Optional.of(job.snapshot());
+    }
+
+    public Optional<RedriveStatus> status(UUID redriveId) {
+        return Optional.ofNullable(jobs.get(redriveId)).map(RedriveJob::snapshot);
+    }
+
+    public List<RedriveStatus> statuses() {
+        return jobs.values().stream().map(RedriveJob::snapshot).toList();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(RedriveJob job) {
+        var request = job.getRequest();
+        var filter = new PoisonFilter(request.groupId(), request.errorClass(), request.from(), request.to(),
+                request.fingerprint(), request.includeRedriven());
+        int batchSize = request.batchSize() != null && request.batchSize() > 0 ? request.batchSize() : defaultBatchSize;
+        int rate = request.maxRecordsPerSecond() != null ? request.maxRecordsPerSecond() : defaultMaxRecordsPerSecond;
+        var limiter = new RateLimiter(rate);
+
+        try {
+            Map<Shard, Long> upToIds = new LinkedHashMap<>();
+            for (var shard : shards.all()) {
+                upToIds.put(shard, poison.maxId(shard));
+            }
+            job.running(upToIds.entrySet().stream()
+                    .mapToLong(e -> poison.count(e.getKey(), filter, e.getValue()))
+                    .sum());
+            log.info("[REDRIVE] start redriveId={} filter={} selected={} rate={}/s",
+                    job.getId(), filter, job.getSelected(), rate);
+
+            var sent = new HashSet<Delivery>();
+            for (var e : upToIds.entrySet()) {
+                redrive(job, e.getKey(), filter, e.getValue(), batchSize, limiter, sent);
+            }
+            job.completed();
+            log.info("[REDRIVE] done redriveId={} republished={} duplicatesSkipped={}",
+                    job.getId(), job.getRepublished(), job.getDuplicatesSkipped());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            job.failed(ie);
+        } catch (Exception ex) {
+            log.error("[REDRIVE] failed redriveId={}", job.getId(), ex);
+            job.failed(ex);
+        }
+    }
+
+    private void redrive(RedriveJob job, Shard shard, PoisonFilter filter, long upToId, int batchSize,
+                         RateLimiter limiter, Set<Delivery> sent)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long afterId = 0;
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Re-drive interrupted");
+            }
+
+            List<PoisonRow> rows = poison.page(shard, filter, afterId, upToId, batchSize);
+            if (rows.isEmpty()) return;
+            afterId = rows.getLast().id();
+
+            // rows of an (event, group) this job already sent are skipped: not reset, not sent, not marked
+            var rowsToSend = rows.stream()
+                    .filter(r -> sent.add(new Delivery(eventId(r), r.groupId())))
+                    .toList();
+            int skipped = rows.size() - rowsToSend.size();
+
+            shard.runInTransaction(() -> rowsToSend.stream()
+                    .collect(Collectors.groupingBy(PoisonRow::groupId,
+                            Collectors.mapping(RedriveService::eventId, Collectors.toList())))
+                    .forEach((groupId, eventIds) -> inbox.resetFailed(shard, groupId, eventIds)));
+
+            // event -> its rows to send (per group), page order
+            var toSend = rowsToSend.stream()
+                    .collect(Collectors.groupingBy(RedriveService::eventId, LinkedHashMap::new, Collectors.toList()));
+
+            limiter.acquire(toSend.size());
+            CompletableFuture.allOf(toSend.values().stream()
+                            .map(this::resend)
+                            .toArray(CompletableFuture[]::new))
+                    .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+
+            shard.runInTransaction(() -> poison.markRedriven(shard, rowsToSend.stream().map(PoisonRow::id).toList()));
+            job.onBatch(toSend.size(), skipped);
+        }
+    }
+
+    /**
+     * One record for all selected groups that parked the event (same original record).
+     */
+    private CompletableFuture<?> resend(List<PoisonRow> rows) {
+        var r = rows.getFirst();
+        var groups = rows.stream().map(PoisonRow::groupId).distinct().toList();
+        return producer.resend(r.topic(), r.partition(), r.key(), r.value(), eventId(r), r.claimCheck(), groups);
+    }
+
+    /**
+     * Poison rows without x-event-id were deduplicated by the deterministic id of their original position;
+     * keep that identity on the re-published record.
+     */
+    private static UUID eventId(PoisonRow row) {
+        return row.eventId() != null
+                ? row.eventId()
+                : EventIdUtil.deterministic(row.topic(), row.partition(), row.offset());
+    }
+}
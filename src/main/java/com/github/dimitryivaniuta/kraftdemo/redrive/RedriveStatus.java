@@ -0,0 +1,29 @@
+package com.github.dimitryivaniuta.kraftdemo.redrive;
+
+import com.github.dimitryivaniuta.kraftdemo.api.RedriveRequest;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Point-in-time view of a re-drive job (returned by the REST API).
+ */
+public record RedriveStatus(
+        UUID redriveId,
+        RedriveRequest request,
+        State state,
+        Instant startedAt,
+        Instant finishedAt,
+        String error,
+        long selected,
+        long republished,
+        long duplicatesSkipped
+) {
+
+    public enum State {PENDING, RUNNING, COMPLETED, FAILED}
+
+    public double percentDone() {
+        if (selected <= 0) return state == State.COMPLETED ? 100.0 : 0.0;
+        return Math.min(100.0, 100.0 * (republished + duplicatesSkipped) / selected);
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.config;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A container takes a single rebalance listener - this one calls several, in order.
+ */
+final class CompositeRebalanceListener implements ConsumerAwareRebalanceListener {
+
+    private final List<ConsumerAwareRebalanceListener> delegates;
+
+    CompositeRebalanceListener(ConsumerAwareRebalanceListener... delegates) {
+        this.delegates = List.of(delegates);
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        delegates.forEach(d -> d.onPartitionsRevokedBeforeCommit(consumer, partitions));
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        delegates.forEach(d -> d.onPartitionsRevokedAfterCommit(consumer, partitions));
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        delegates.forEach(d -> d.onPartitionsLost(consumer, partitions));
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        delegates.forEach(d -> d.onPartitionsAssigned(consumer, partitions));
+    }
+}
@@ -1,11 +1,15 @@
 package com.github.dimitryivaniuta.kraftdemo.reliability.config;
 
+import com.github.dimitryivaniuta.kraftdemo.consumer.KeyCoalescingAdapter;
+import com.github.dimitryivaniuta.kraftdemo.reliability.dedup.DedupIndex;
+import com.github.dimitryivaniuta.kraftdemo.reliability.drain.DrainTracker;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 
 /**
@@ -16,6 +20,9 @@ import org.springframework.kafka.listener.DefaultErrorHandler;
 public class KafkaListenerFactoryConfig {
 
     private final DefaultErrorHandler kafkaErrorHandler;
+    private final DedupIndex dedupIndex;
+    private final DrainTracker drainTracker;
+    private final KeyCoalescingAdapter coalescing;
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<Object, Object> kafkaListenerContainerFactory(
@@ -26,9 +33,27 @@ public class KafkaListenerFactoryConfig {
         configurer.configure(factory, consumerFactory);
 
         factory.setCommonErrorHandler(kafkaErrorHandler);
+        // expose the error handler's attempt counter as a header => InboxService tracks attempts without DB writes
+        factory.getContainerProperties().setDeliveryAttemptHeader(true);
+        // revocation: report abandoned records, then (after the commit) flush the local dedup index
+        factory.getContainerProperties().setConsumerRebalanceListener(
+                new CompositeRebalanceListener(drainTracker.rebalanceListener(), dedupIndex.rebalanceListener()));
+        // last completed offsets are committed synchronously - also on revocation and on stop
+        factory.getContainerProperties().setSyncCommits(true);
+        // DrainCoordinator lets the containers finish their poll before stopping them => stop does not wait again
+        factory.getContainerProperties().setStopImmediate(true);
+        factory.setRecordInterceptor(drainTracker);
         // keep ordering per partition (do not use concurrency > 1 in a single listener unless you really need it)
         factory.setConcurrency(1);
 
+        if (coalescing.isEnabled()) {
+            // poll-sized batches, coalesced per key, then handed to the same record-level listener methods
+            factory.setBatchListener(true);
+            factory.setBatchToRecordAdapter(coalescing);
+            factory.setBatchInterceptor(drainTracker);
+            factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        }
+
         return factory;
     }
 }
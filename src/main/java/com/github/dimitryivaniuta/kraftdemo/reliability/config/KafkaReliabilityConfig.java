@@ -1,30 +1,35 @@
 package com.github.dimitryivaniuta.kraftdemo.reliability.config;
 
+import com.github.dimitryivaniuta.kraftdemo.consumer.PartitionedConsumers;
+import com.github.dimitryivaniuta.kraftdemo.observe.RecordEventLog;
+import com.github.dimitryivaniuta.kraftdemo.payload.Payload;
+import com.github.dimitryivaniuta.kraftdemo.reliability.dedup.DedupIndex;
+import com.github.dimitryivaniuta.kraftdemo.reliability.drain.DrainTracker;
 import com.github.dimitryivaniuta.kraftdemo.reliability.exception.PoisonMessageException;
 import com.github.dimitryivaniuta.kraftdemo.reliability.service.InboxService;
 import com.github.dimitryivaniuta.kraftdemo.reliability.service.PoisonMessageService;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.EventIdUtil;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.common.header.Header;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.listener.ConsumerAwareRecordRecoverer;
 import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.kafka.support.KafkaUtils;
 
-import java.nio.charset.StandardCharsets;
-import java.util.Optional;
 import java.util.UUID;
 
-@Slf4j
 @Configuration
 @RequiredArgsConstructor
 public class KafkaReliabilityConfig {
 
     private final PoisonMessageService poison;
     private final InboxService inbox;
+    private final DedupIndex dedupIndex;
+    private final DrainTracker drainTracker;
+    private final RecordEventLog eventLog;
 
     /**
      * Production-grade retry strategy:
@@ -41,42 +46,35 @@ public class KafkaReliabilityConfig {
 
         ConsumerAwareRecordRecoverer recoverer = (ConsumerRecord<?, ?> rec, Exception ex, Consumer<?, ?> consumer) -> {
             @SuppressWarnings("unchecked")
-            var record = (ConsumerRecord<String, String>) rec;
+            var record = (ConsumerRecord<String, Payload>) rec;
 
-            String groupId = consumer.groupMetadata() != null ? consumer.groupMetadata().groupId() : "unknown-group";
-            UUID eventId = tryReadEventId(record).orElse(null);
+            String kafkaGroupId = consumer.groupMetadata() != null ? consumer.groupMetadata().groupId() : "unknown-group";
+            // inbox / poison rows are per inbox group (shared by both lanes), local state per container group
+            String groupId = PartitionedConsumers.inboxGroupId(kafkaGroupId);
+            UUID eventId = EventIdUtil.readEventIdHeader(record).orElse(null);
 
-            log.error("[RECOVER] group={} topic={} partition={} offset={} eventId={} ex={}",
-                    groupId, record.topic(), record.partition(), record.offset(), eventId, ex.toString());
+            eventLog.recovered(groupId, record, eventId, ex);
 
             if (eventId != null) {
-                inbox.markFailed(eventId, groupId, ex.getClass().getSimpleName() + ": " + safe(ex.getMessage()));
+                inbox.markFailed(eventId, groupId, record, ex.getClass().getSimpleName() + ": " + safe(ex.getMessage()));
             }
             poison.store(eventId, groupId, record, ex);
+            // offset is committed next (commitRecovered) => keep the local index checkpoint in step
+            dedupIndex.onSkipped(kafkaGroupId, record);
+            drainTracker.onRecovered(kafkaGroupId, record);
         };
 
         var handler = new DefaultErrorHandler(recoverer, backoff);
         handler.setCommitRecovered(true); // IMPORTANT: move past poison message after recovery
         handler.addNotRetryableExceptions(PoisonMessageException.class, IllegalArgumentException.class);
 
-        handler.setRetryListeners((record, ex, deliveryAttempt) -> log.warn(
-                "[RETRY] topic={} partition={} offset={} attempt={} ex={}",
-                record.topic(), record.partition(), record.offset(), deliveryAttempt, ex.toString()
-        ));
+        // runs on the consumer thread => the container's group id is available
+        handler.setRetryListeners((record, ex, deliveryAttempt) ->
+                eventLog.retry(KafkaUtils.getConsumerGroupId(), record, deliveryAttempt, ex));
 
         return handler;
     }
 
-    private static Optional<UUID> tryReadEventId(ConsumerRecord<String, String> record) {
-        Header h = record.headers().lastHeader("x-event-id");
-        if (h == null) return Optional.empty();
-        try {
-            return Optional.of(UUID.fromString(new String(h.value(), StandardCharsets.UTF_8)));
-        } catch (Exception ignore) {
-            return Optional.empty();
-        }
-    }
-
     private static String safe(String s) {
         if (s == null) return null;
         return s.length() > 1000 ? s.substring(0, 1000) : s;
@@ -0,0 +1,160 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.dedup;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.event.ConsumerStoppedEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Optional local fast tier in front of the Postgres inbox: "was this event already processed?" for recent events,
+ * answered from a memory-mapped per-partition index ({@link PartitionDedupIndex}) that survives restarts.
+ * <p>
+ * Rules:
+ * - Postgres stays the source of truth; the index only answers "processed" (a miss always goes to InboxService)
+ * - the index checkpoint (next offset to consume) advances together with the offsets the container commits
+ * - on the first record of a partition after (re)assignment, checkpoint != record offset means the partition
+ *   was consumed elsewhere (moved to another node) or offsets were reset - the index is stale and is reset
+ * - on revocation / container stop the index is flushed to disk and must be re-validated on next use
+ * <p>
+ * Enabled with app.dedup-index.enabled (runtime flag, so it also works with an AOT-processed build).
+ */
+@Slf4j
+@Component
+public class DedupIndex {
+
+    private record Key(String groupId, String topic, int partition) {
+    }
+
+    private final Map<Key, PartitionDedupIndex> indices = new ConcurrentHashMap<>();
+    private final Set<Key> validated = ConcurrentHashMap.newKeySet();
+    private final Set<Key> unavailable = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.dedup-index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.dedup-index.directory:${java.io.tmpdir}/kraft-demo-dedup-index}")
+    private Path directory;
+
+    @Value("${app.dedup-index.slots-per-partition:262144}")
+    private int slotsPerPartition;
+
+    /**
+     * @return true only if the event is known to be PROCESSED; false means "ask Postgres"
+     */
+    public boolean isProcessed(String groupId, ConsumerRecord<?, ?> record, UUID eventId) {
+        if (!enabled) return false;
+        var index = session(groupId, record);
+        return index != null && index.contains(eventId);
+    }
+
+    /**
+     * Record was processed (or confirmed as duplicate) and its offset will be committed.
+     */
+    public void onProcessed(String groupId, ConsumerRecord<?, ?> record, UUID eventId) {
+        if (!enabled) return;
+        var index = session(groupId, record);
+        if (index == null) return;
+        index.put(eventId, record.offset());
+        index.checkpoint(record.offset() + 1);
+    }
+
+    /**
+     * Record's offset will be committed without a PROCESSED event (recovered as poison).
+     */
+    public void onSkipped(String groupId, ConsumerRecord<?, ?> record) {
+        if (!enabled) return;
+        var index = session(groupId, record);
+        if (index != null) index.checkpoint(record.offset() + 1);
+    }
+
+    /**
+     * Flushes the indexes of revoked partitions after the container committed their offsets.
+     */
+    public ConsumerAwareRebalanceListener rebalanceListener() {
+        return new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                if (!enabled) return;
+                String groupId = consumer.groupMetadata().groupId();
+                partitions.forEach(tp -> release(new Key(groupId, tp.topic(), tp.partition())));
+            }
+        };
+    }
+
+    /**
+     * Manually assigned containers (group-a) get no rebalance callbacks - release on container stop instead.
+     * Only the stopped consumer's partitions: the child containers of a concurrent container share its group id,
+     * so one child stopping must not force its running siblings to re-validate. The whole group is released only
+     * when the stopped consumer's partitions are unknown.
+     */
+    @EventListener
+    public void onConsumerStopped(ConsumerStoppedEvent event) {
+        if (!enabled) return;
+        var container = event.getSource(MessageListenerContainer.class);
+        String groupId = container.getGroupId();
+        var partitions = container.getAssignedPartitions();
+        if (partitions == null) {
+            indices.keySet().stream().filter(k -> k.groupId().equals(groupId)).forEach(this::release);
+        } else {
+            partitions.forEach(tp -> release(new Key(groupId, tp.topic(), tp.partition())));
+        }
+    }
+
+    @PreDestroy
+    void flushAll() {
+        indices.values().forEach(PartitionDedupIndex::force);
+    }
+
+    private void release(Key key) {
+        validated.remove(key);
+        var index = indices.get(key);
+        if (index != null) index.force();
+    }
+
+    private PartitionDedupIndex session(String groupId, ConsumerRecord<?, ?> record) {
+        var key = new Key(groupId, record.topic(), record.partition());
+        var index = indices.computeIfAbsent(key, this::open);
+        if (index == null) return null;
+
+        // first record after (re)assignment: the consumer starts at the committed offset
+        if (validated.add(key) && index.checkpoint() != record.offset()) {
+            log.info("[DEDUP-INDEX] stale index for group={} topic={} partition={} checkpoint={} firstOffset={} -> reset",
+                    groupId, record.topic(), record.partition(), index.checkpoint(), record.offset());
+            index.reset(record.offset());
+        }
+        return index;
+    }
+
+    private PartitionDedupIndex open(Key key) {
+        if (unavailable.contains(key)) return null;
+        Path file = directory
+                .resolve(safe(key.groupId()))
+                .resolve(safe(key.topic()) + "-" + key.partition() + ".idx");
+        try {
+            return PartitionDedupIndex.open(file, slotsPerPartition);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("[DEDUP-INDEX] cannot open {} - falling back to Postgres only: {}", file, ex.toString());
+            unavailable.add(key);
+            return null;
+        }
+    }
+
+    private static String safe(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
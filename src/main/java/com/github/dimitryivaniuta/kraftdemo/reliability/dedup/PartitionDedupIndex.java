@@ -0,0 +1,180 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.dedup;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Memory-mapped open-addressing hash set of processed event ids for one (group, topic, partition).
+ * <p>
+ * File layout (little work on the heap - one mapped buffer, no per-entry objects):
+ * <pre>
+ * header (64 bytes): magic | version | capacity | size | checkpointOffset | (reserved)
+ * slots  (24 bytes): eventId msb | eventId lsb | offset      (msb == lsb == 0 => empty)
+ * </pre>
+ * Linear probing, capacity is a power of two. When the load factor is reached the table is cleared: the index
+ * only ever holds "recent" events, older ones fall back to Postgres (the index only answers "processed").
+ * <p>
+ * Not thread-safe: a partition is consumed by one listener thread at a time.
+ */
+final class PartitionDedupIndex {
+
+    private static final int MAGIC = 0x4B444958; // "KDIX"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 24;
+
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_CAPACITY = 8;
+    private static final int H_SIZE = 12;
+    private static final int H_CHECKPOINT = 16;
+
+    private static final int MIN_CAPACITY = 1 << 10;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final double MAX_LOAD = 0.7;
+
+    private static final byte[] ZEROES = new byte[64 * 1024];
+
+    private final MappedByteBuffer buf;
+    private final int capacity;
+    private final int mask;
+    private final int maxSize;
+
+    private PartitionDedupIndex(MappedByteBuffer buf, int capacity) {
+        this.buf = buf;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.maxSize = (int) (capacity * MAX_LOAD);
+    }
+
+    /**
+     * Maps (and creates or re-initializes if the layout does not match) the index file.
+     */
+    static PartitionDedupIndex open(Path file, int requestedSlots) throws IOException {
+        int capacity = Integer.highestOneBit(Math.clamp(requestedSlots, MIN_CAPACITY, MAX_CAPACITY) * 2 - 1);
+        long bytes = HEADER_BYTES + (long) capacity * SLOT_BYTES;
+
+        Files.createDirectories(file.getParent());
+        try (var ch = FileChannel.open(file, CREATE, READ, WRITE)) {
+            boolean fresh = ch.size() != bytes;
+            if (fresh) ch.truncate(0);
+
+            // the mapping stays valid after the channel is closed
+            var index = new PartitionDedupIndex(ch.map(FileChannel.MapMode.READ_WRITE, 0, bytes), capacity);
+            if (fresh || !index.hasValidHeader()) {
+                index.reset(-1);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Next offset to be consumed when the index was last updated; -1 if unknown.
+     */
+    long checkpoint() {
+        return buf.getLong(H_CHECKPOINT);
+    }
+
+    void checkpoint(long nextOffset) {
+        buf.putLong(H_CHECKPOINT, nextOffset);
+    }
+
+    int size() {
+        return buf.getInt(H_SIZE);
+    }
+
+    boolean contains(UUID eventId) {
+        long msb = eventId.getMostSignificantBits();
+        long lsb = eventId.getLeastSignificantBits();
+        if (msb == 0 && lsb == 0) return false;
+
+        int slot = hash(msb, lsb) & mask;
+        for (int probes = 0; probes < capacity; probes++) {
+            int pos = HEADER_BYTES + slot * SLOT_BYTES;
+            long m = buf.getLong(pos);
+            long l = buf.getLong(pos + 8);
+            if (m == 0 && l == 0) return false;
+            if (m == msb && l == lsb) return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    void put(UUID eventId, long offset) {
+        long msb = eventId.getMostSignificantBits();
+        long lsb = eventId.getLeastSignificantBits();
+        if (msb == 0 && lsb == 0) return;
+
+        if (size() >= maxSize) {
+            // keep only recent events: drop everything, lookups of the dropped ones go to Postgres
+            clearSlots();
+            buf.putInt(H_SIZE, 0);
+        }
+
+        int slot = hash(msb, lsb) & mask;
+        while (true) {
+            int pos = HEADER_BYTES + slot * SLOT_BYTES;
+            long m = buf.getLong(pos);
+            long l = buf.getLong(pos + 8);
+            if (m == msb && l == lsb) {
+                buf.putLong(pos + 16, offset);
+                return;
+            }
+            if (m == 0 && l == 0) {
+                buf.putLong(pos + 16, offset);
+                buf.putLong(pos + 8, lsb);
+                buf.putLong(pos, msb);
+                buf.putInt(H_SIZE, size() + 1);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Empties the table and restarts it at {@code nextOffset} (used when the index is stale).
+     */
+    void reset(long nextOffset) {
+        clearSlots();
+        buf.putInt(H_MAGIC, MAGIC);
+        buf.putInt(H_VERSION, VERSION);
+        buf.putInt(H_CAPACITY, capacity);
+        buf.putInt(H_SIZE, 0);
+        buf.putLong(H_CHECKPOINT, nextOffset);
+    }
+
+    /**
+     * Flushes dirty pages to the file (survives an OS crash, not only a process crash).
+     */
+    void force() {
+        buf.force();
+    }
+
+    private boolean hasValidHeader() {
+        return buf.getInt(H_MAGIC) == MAGIC
+                && buf.getInt(H_VERSION) == VERSION
+                && buf.getInt(H_CAPACITY) == capacity;
+    }
+
+    private void clearSlots() {
+        int end = HEADER_BYTES + capacity * SLOT_BYTES;
+        for (int pos = HEADER_BYTES; pos < end; pos += ZEROES.length) {
+            buf.put(pos, ZEROES, 0, Math.min(ZEROES.length, end - pos));
+        }
+    }
+
+    static int hash(long msb, long lsb) {
+        long h = msb ^ Long.rotateLeft(lsb, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
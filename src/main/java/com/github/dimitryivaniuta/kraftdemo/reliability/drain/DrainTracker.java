@@ -0,0 +1,190 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.drain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.kafka.support.KafkaUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-partition progress of the listener containers, used to report what a drain finished and what it left behind.
+ * <p>
+ * - fetched: consumer position after the poll that returned the latest record (records handed to the container)
+ * - completed: offset after the last record that succeeded or was recovered as poison (what gets committed)
+ * - abandoned = fetched - completed: records that will be redelivered to the next owner of the partition
+ * <p>
+ * Installed as record interceptor (record listeners) and batch interceptor (coalescing mode); all callbacks run on
+ * the consumer thread, the coordinator only reads the volatile positions.
+ * <p>
+ * Metrics: kafka.consumer.drain.records{trigger=shutdown|revocation,outcome=drained|abandoned}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DrainTracker implements RecordInterceptor<Object, Object>, BatchInterceptor<Object, Object> {
+
+    private final MeterRegistry meters;
+
+    private final Map<Key, Progress> progress = new ConcurrentHashMap<>();
+    private final LongAdder drained = new LongAdder();
+    private volatile boolean draining;
+
+    private record Key(String groupId, String topic, int partition) {
+    }
+
+    private static final class Progress {
+        volatile long fetched = -1;
+        volatile long completed = -1;
+        // consumer thread only
+        long lastSeen = -1;
+
+        long abandoned() {
+            return fetched < 0 || completed < 0 ? 0 : Math.max(0, fetched - completed);
+        }
+    }
+
+    /**
+     * Outcome of a drain: records completed while draining vs records fetched but never completed.
+     */
+    public record Report(long drained, long abandoned) {
+    }
+
+    @Override
+    public ConsumerRecord<Object, Object> intercept(ConsumerRecord<Object, Object> record, Consumer<Object, Object> consumer) {
+        var p = progress(KafkaUtils.getConsumerGroupId(), record.topic(), record.partition());
+        // everything before this record is done - succeeded, or recovered by the error handler
+        if (p.completed < record.offset()) p.completed = record.offset();
+        // first record of a new poll, or a rewind (the error handler seeks back for a retry)
+        if (record.offset() >= p.fetched || record.offset() <= p.lastSeen) {
+            p.fetched = consumer.position(new TopicPartition(record.topic(), record.partition()));
+        }
+        p.lastSeen = record.offset();
+        return record;
+    }
+
+    @Override
+    public void success(ConsumerRecord<Object, Object> record, Consumer<Object, Object> consumer) {
+        complete(KafkaUtils.getConsumerGroupId(), record);
+        if (draining) drained.increment();
+    }
+
+    @Override
+    public ConsumerRecords<Object, Object> intercept(ConsumerRecords<Object, Object> records, Consumer<Object, Object> consumer) {
+        String groupId = KafkaUtils.getConsumerGroupId();
+        for (var tp : records.partitions()) {
+            var partition = records.records(tp);
+            var p = progress(groupId, tp.topic(), tp.partition());
+            p.completed = partition.getFirst().offset();
+            p.fetched = partition.getLast().offset() + 1;
+        }
+        return records;
+    }
+
+    @Override
+    public void success(ConsumerRecords<Object, Object> records, Consumer<Object, Object> consumer) {
+        String groupId = KafkaUtils.getConsumerGroupId();
+        for (var tp : records.partitions()) {
+            complete(groupId, records.records(tp).getLast());
+        }
+        if (draining) drained.add(records.count());
+    }
+
+    @Override
+    public void failure(ConsumerRecords<Object, Object> records, Exception exception, Consumer<Object, Object> consumer) {
+        // records before the failed one are committed by the error handler
+        if (exception instanceof BatchListenerFailedException failed && failed.getRecord() != null) {
+            var record = failed.getRecord();
+            progress(KafkaUtils.getConsumerGroupId(), record.topic(), record.partition()).completed = record.offset();
+        }
+    }
+
+    /**
+     * Record's offset is committed without a successful listener call (recovered as poison).
+     */
+    public void onRecovered(String groupId, ConsumerRecord<?, ?> record) {
+        complete(groupId, record);
+    }
+
+    /**
+     * Reports revoked partitions: the container commits the completed offsets (synchronously) right after this
+     * callback, anything fetched beyond them is redelivered to the new owner.
+     */
+    public ConsumerAwareRebalanceListener rebalanceListener() {
+        return new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                // a shutdown drain reports the partitions itself once the containers are stopped
+                if (draining) return;
+                String groupId = consumer.groupMetadata().groupId();
+                long abandoned = release(groupId, partitions);
+                count("revocation", "abandoned", abandoned);
+                log.info("[DRAIN] revoked group={} partitions={} abandoned={}", groupId, partitions, abandoned);
+            }
+
+            @Override
+            public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                // nothing can be committed for lost partitions
+                if (!draining) release(consumer.groupMetadata().groupId(), partitions);
+            }
+        };
+    }
+
+    void beginDrain() {
+        drained.reset();
+        draining = true;
+    }
+
+    /**
+     * Call once the containers are stopped: no more progress can be made.
+     */
+    Report endDrain() {
+        long abandoned = progress.values().stream().mapToLong(Progress::abandoned).sum();
+        progress.clear();
+        var report = new Report(drained.sumThenReset(), abandoned);
+        draining = false;
+        count("shutdown", "drained", report.drained());
+        count("shutdown", "abandoned", report.abandoned());
+        return report;
+    }
+
+    private long release(String groupId, Collection<TopicPartition> partitions) {
+        long abandoned = 0;
+        for (var tp : partitions) {
+            var p = progress.remove(new Key(groupId, tp.topic(), tp.partition()));
+            if (p != null) abandoned += p.abandoned();
+        }
+        return abandoned;
+    }
+
+    private void complete(String groupId, ConsumerRecord<?, ?> record) {
+        var p = progress(groupId, record.topic(), record.partition());
+        if (p.completed <= record.offset()) p.completed = record.offset() + 1;
+    }
+
+    private Progress progress(String groupId, String topic, int partition) {
+        if (groupId == null) groupId = "unknown-group";
+        return progress.computeIfAbsent(new Key(groupId, topic, partition), k -> new Progress());
+    }
+
+    private void count(String trigger, String outcome, long n) {
+        Counter.builder("kafka.consumer.drain.records")
+                .tag("trigger", trigger)
+                .tag("outcome", outcome)
+                .register(meters)
+                .increment(n);
+    }
+}
@@ -0,0 +1,12 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.service;
+
+import com.github.dimitryivaniuta.kraftdemo.payload.Payload;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.util.UUID;
+
+/**
+ * A consumed record together with its resolved idempotency key (used by the bulk paths).
+ */
+public record EventRecord(UUID eventId, ConsumerRecord<String, Payload> record) {
+}
@@ -0,0 +1,113 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.service;
+
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.Shard;
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interned consumer group / topic names (smallint ids) of the inbox table, cached per shard.
+ * <p>
+ * Ids are assigned by each shard's own dictionary table, so they are only meaningful on that shard.
+ * <p>
+ * Both dictionaries are loaded once at startup, before the listener containers start, so the processing path
+ * normally only reads the cache. A name seen for the first time is inserted on the caller's connection, in its
+ * transaction if one is open, so interning never needs a second pooled connection. The price: the new dictionary
+ * row stays locked until that transaction ends, and a concurrent first use of the same name (other thread, same
+ * shard) blocks on its insert until then - once per name and shard, and only when the preload missed it.
+ * The id is cached only after the transaction commits: a rolled back processing transaction must not leave a
+ * cached id without its row.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class InboxDictionary implements SmartInitializingSingleton {
+
+    private static final String GROUPS = "kafka_consumer_group_dict";
+    private static final String TOPICS = "kafka_topic_dict";
+
+    private record Key(int shard, String table, String name) {
+    }
+
+    private final ShardRouter shards;
+
+    private final Map<Key, Short> ids = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (var shard : shards.all()) {
+            try {
+                load(shard, GROUPS);
+                load(shard, TOPICS);
+            } catch (RuntimeException ex) {
+                // not fatal: names are interned on first use instead
+                log.warn("[INBOX] cannot preload dictionaries of {}: {}", shard, ex.toString());
+            }
+        }
+    }
+
+    short groupId(Shard shard, String groupId) {
+        return intern(shard, GROUPS, groupId);
+    }
+
+    short topicId(Shard shard, String topic) {
+        return intern(shard, TOPICS, topic);
+    }
+
+    /**
+     * Lookup without interning (read paths): an unknown group has no inbox rows on this shard.
+     */
+    Optional<Short> findGroupId(Shard shard, String groupId) {
+        var key = new Key(shard.index(), GROUPS, groupId);
+        var cached = ids.get(key);
+        if (cached != null) return Optional.of(cached);
+
+        var found = select(shard, GROUPS, groupId);
+        found.ifPresent(id -> ids.put(key, id));
+        return found;
+    }
+
+    private short intern(Shard shard, String table, String name) {
+        var key = new Key(shard.index(), table, name);
+        var cached = ids.get(key);
+        if (cached != null) return cached;
+
+        // concurrent first uses both insert; the second waits for the first one's transaction, then
+        // "on conflict do nothing" makes them agree on one id
+        shard.jdbc().update("insert into " + table + "(name) values (?) on conflict (name) do nothing", name);
+        short id = select(shard, table, name).orElseThrow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ids.putIfAbsent(key, id);
+                }
+            });
+        } else {
+            ids.putIfAbsent(key, id);
+        }
+        return id;
+    }
+
+    private void load(Shard shard, String table) {
+        shard.jdbc().query("select id, name from " + table, rs -> {
+            ids.putIfAbsent(new Key(shard.index(), table, rs.getString(2)), rs.getShort(1));
+        });
+    }
+
+    private static Optional<Short> select(Shard shard, String table, String name) {
+        return shard.jdbc().query(
+                "select id from " + table + " where name = ?",
+                (rs, rowNum) -> rs.getShort(1),
+                name
+        ).stream().findFirst();
+    }
+}
@@ -1,15 +1,15 @@
 package com.github.dimitryivaniuta.kraftdemo.reliability.service;
 
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.Shard;
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.ShardRouter;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.DeliveryAttemptUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Inbox pattern:
@@ -17,14 +17,52 @@ import java.util.UUID;
  * <p>
  * Idempotency scope:
  * - per consumer group (each group is an independent stream)
+ * <p>
+ * Write-behind state:
+ * - the dedup check is a read; nothing is written while a record is being processed/retried
+ * - attempts of in-thread retries come from spring-kafka's delivery attempt header
+ * - the row is written once, at the terminal transition (PROCESSED together with the side effect, or FAILED)
+ * <p>
+ * Crash semantics: a crash before the terminal write leaves no PROCESSED row, so the redelivered record is
+ * processed again (at-least-once); the unique side-effect row keeps the result exactly-once.
+ * <p>
+ * Storage is sharded by (consumer group, partition), see {@link ShardRouter}; writes join the shard
+ * transaction opened by the caller (ProcessingService) or open their own.
+ * <p>
+ * Row layout (V2): group and topic are smallint dictionary ids ({@link InboxDictionary}), status is a
+ * smallint code. Transitions only touch status/attempt/last_error/updated_at - none of them indexed - so
+ * with the table's fillfactor they are HOT updates.
  */
 @Service
 @RequiredArgsConstructor
 public class InboxService {
 
-    private final JdbcTemplate jdbc;
+    private final ShardRouter shards;
+    private final InboxDictionary dictionary;
 
-    public enum InboxStatus {PROCESSING, PROCESSED, FAILED}
+    /**
+     * Codes are the stored smallint values (V2 migration) - never renumber them.
+     */
+    public enum InboxStatus {
+        PROCESSING(0), PROCESSED(1), FAILED(2);
+
+        private final short code;
+
+        InboxStatus(int code) {
+            this.code = (short) code;
+        }
+
+        public short code() {
+            return code;
+        }
+
+        public static InboxStatus ofCode(short code) {
+            for (var status : values()) {
+                if (status.code == code) return status;
+            }
+            throw new IllegalArgumentException("Unknown inbox status code " + code);
+        }
+    }
 
     @Value
     public static class ClaimResult {
@@ -34,105 +72,195 @@ public class InboxService {
     }
 
     /**
-     * Claim a record for processing and bump attempt counter.
+     * Dedup check for a delivery - does not write.
+     * <p>
+     * In-thread retries (delivery attempt > 1) skip the lookup: the first attempt of this delivery already
+     * established that the event was not processed, and nothing else processes this partition of this lane meanwhile.
+     * Batch containers (key coalescing) do not set the header, so there every delivery does the lookup.
      * <p>
-     * MUST commit even if processing later fails, otherwise attempt count would reset to 1 on every retry.
+     * The other priority lane may deliver the same event at the same time. Both lanes find its row because both
+     * lane topics have the same partition count (same partition => same shard, see KafkaTopicConfig); with
+     * different counts the lanes would check different shards and process the event twice. Lanes racing past
+     * this check (or past the shortcut) are harmless: the side-effect insert ignores an existing row and
+     * PROCESSED is an upsert, so the group still ends up with one side effect.
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public ClaimResult claim(UUID eventId, String groupId, ConsumerRecord<String, String> record) {
-        // Try insert (first delivery for this group)
-        int inserted = jdbc.update(
-                """                insert into kafka_event_inbox(event_id, consumer_group, topic, partition, offset, status, attempt, updated_at)
-                        values (?, ?, ?, ?, ?, 'PROCESSING', 1, now())
-                        on conflict (event_id, consumer_group) do nothing
-                        """,
-
-                eventId,
-                groupId,
-                record.topic(),
-                record.partition(),
-                record.offset()
-        );
-
-        if (inserted == 1) {
-            return new ClaimResult(false, 1, InboxStatus.PROCESSING);
+    public ClaimResult claim(UUID eventId, String groupId, ConsumerRecord<?, ?> record) {
+        int attempt = DeliveryAttemptUtil.deliveryAttempt(record);
+        if (attempt > 1) {
+            return new ClaimResult(false, attempt, InboxStatus.PROCESSING);
         }
 
-        // Existing event for this group => check status and bump attempt if needed
-        var row = jdbc.queryForMap(
-                "select status, attempt from kafka_event_inbox where event_id = ? and consumer_group = ?",
-                eventId,
-                groupId
-        );
+        return getStatus(eventId, groupId, record.partition())
+                .filter(status -> status == InboxStatus.PROCESSED)
+                .map(status -> new ClaimResult(true, attempt, status))
+                .orElseGet(() -> new ClaimResult(false, attempt, InboxStatus.PROCESSING));
+    }
 
-        InboxStatus status = InboxStatus.valueOf(((String) row.get("status")).toUpperCase());
-        int attempt = ((Number) row.get("attempt")).intValue();
+    /**
+     * Bulk variant of {@link #claim} used by replay: one query per shard for the whole batch.
+     * <p>
+     * Records whose event is already PROCESSED are dropped unless {@code force} is set.
+     *
+     * @return records that must be processed
+     */
+    public List<EventRecord> claimBatch(String groupId, List<EventRecord> batch, boolean force) {
+        if (force || batch.isEmpty()) return batch;
 
-        if (status == InboxStatus.PROCESSED) {
-            return new ClaimResult(true, attempt, status);
-        }
+        var processed = new HashSet<UUID>();
+        var byShard = batch.stream().collect(Collectors.groupingBy(
+                e -> shards.route(groupId, e.record().partition()).index(), TreeMap::new, Collectors.toList()));
+        byShard.forEach((shardIndex, events) -> {
+            var shard = shards.all().get(shardIndex);
+            dictionary.findGroupId(shard, groupId).ifPresent(group -> processed.addAll(shard.jdbc().query(
+                    con -> {
+                        var ps = con.prepareStatement("""
+                                select event_id
+                                  from kafka_event_inbox
+                                 where group_id = ? and status = ? and event_id = any(?)
+                                """);
+                        ps.setShort(1, group);
+                        ps.setShort(2, InboxStatus.PROCESSED.code());
+                        ps.setArray(3, con.createArrayOf("uuid", events.stream().map(EventRecord::eventId).toArray()));
+                        return ps;
+                    },
+                    (rs, rowNum) -> rs.getObject(1, UUID.class)
+            )));
+        });
+
+        return batch.stream().filter(e -> !processed.contains(e.eventId())).toList();
+    }
 
-        int nextAttempt = attempt + 1;
-        jdbc.update(
-                """                update kafka_event_inbox
-                           set status = 'PROCESSING',
-                               attempt = ?,
-                               topic = ?,
-                               partition = ?,
-                               offset = ?,
-                               updated_at = now()
-                         where event_id = ? and consumer_group = ?
+    /**
+     * Terminal transition to PROCESSED; joins the caller's shard transaction so side effect and inbox state
+     * commit together.
+     */
+    public void markProcessed(UUID eventId, String groupId, ConsumerRecord<?, ?> record) {
+        var shard = shards.route(groupId, record.partition());
+        shard.jdbc().update(
+                """
+                        insert into kafka_event_inbox(event_id, group_id, topic_id, partition, offset, status, attempt, updated_at)
+                        values (?, ?, ?, ?, ?, ?, ?, now())
+                        on conflict (event_id, group_id) do update
+                           set status = excluded.status,
+                               attempt = kafka_event_inbox.attempt + excluded.attempt,
+                               updated_at = now(),
+                               last_error = null
                         """,
 
-                nextAttempt,
-                record.topic(),
+                eventId,
+                dictionary.groupId(shard, groupId),
+                dictionary.topicId(shard, record.topic()),
                 record.partition(),
                 record.offset(),
-                eventId,
-                groupId
+                InboxStatus.PROCESSED.code(),
+                DeliveryAttemptUtil.deliveryAttempt(record)
         );
-
-        return new ClaimResult(false, nextAttempt, InboxStatus.PROCESSING);
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void markProcessed(UUID eventId, String groupId) {
-        jdbc.update(
-                """                update kafka_event_inbox
-                           set status = 'PROCESSED',
+    /**
+     * Bulk variant of {@link #markProcessed}; joins the caller's shard transaction.
+     * All records must route to the same shard (callers group batches by shard).
+     */
+    public void markProcessedBatch(String groupId, List<EventRecord> batch) {
+        if (batch.isEmpty()) return;
+        var shard = shards.route(groupId, batch.getFirst().record().partition());
+        short group = dictionary.groupId(shard, groupId);
+        shard.jdbc().batchUpdate(
+                """
+                        insert into kafka_event_inbox(event_id, group_id, topic_id, partition, offset, status, attempt, updated_at)
+                        values (?, ?, ?, ?, ?, ?, 1, now())
+                        on conflict (event_id, group_id) do update
+                           set status = excluded.status,
+                               attempt = kafka_event_inbox.attempt + 1,
                                updated_at = now(),
                                last_error = null
-                         where event_id = ? and consumer_group = ?
                         """,
-
-                eventId,
-                groupId
+                batch,
+                batch.size(),
+                (ps, e) -> {
+                    ps.setObject(1, e.eventId());
+                    ps.setShort(2, group);
+                    ps.setShort(3, dictionary.topicId(shard, e.record().topic()));
+                    ps.setInt(4, e.record().partition());
+                    ps.setLong(5, e.record().offset());
+                    ps.setShort(6, InboxStatus.PROCESSED.code());
+                }
         );
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void markFailed(UUID eventId, String groupId, String error) {
-        jdbc.update(
-                """                update kafka_event_inbox
-                           set status = 'FAILED',
+    /**
+     * Terminal transition to FAILED (retries exhausted or poison). Called from the recoverer, outside any
+     * processing transaction.
+     */
+    public void markFailed(UUID eventId, String groupId, ConsumerRecord<?, ?> record, String error) {
+        var shard = shards.route(groupId, record.partition());
+        short group = dictionary.groupId(shard, groupId);
+        short topic = dictionary.topicId(shard, record.topic());
+        shard.runInNewTransaction(() -> shard.jdbc().update(
+                """
+                        insert into kafka_event_inbox(event_id, group_id, topic_id, partition, offset, status, attempt, last_error, updated_at)
+                        values (?, ?, ?, ?, ?, ?, ?, ?, now())
+                        on conflict (event_id, group_id) do update
+                           set status = excluded.status,
+                               attempt = kafka_event_inbox.attempt + excluded.attempt,
                                updated_at = now(),
-                               last_error = ?
-                         where event_id = ? and consumer_group = ?
+                               last_error = excluded.last_error
+                         where kafka_event_inbox.status <> ?
                         """,
 
-                error,
                 eventId,
-                groupId
-        );
+                group,
+                topic,
+                record.partition(),
+                record.offset(),
+                InboxStatus.FAILED.code(),
+                DeliveryAttemptUtil.deliveryAttempt(record),
+                error,
+                InboxStatus.PROCESSED.code()
+        ));
+    }
+
+    /**
+     * FAILED -> PROCESSING for events that are being re-driven (poison re-drive); PROCESSED rows are left alone.
+     * Joins the caller's transaction on {@code shard} - the shard holding the poison rows of these events.
+     */
+    public void resetFailed(Shard shard, String groupId, List<UUID> eventIds) {
+        if (eventIds.isEmpty()) return;
+        dictionary.findGroupId(shard, groupId).ifPresent(group -> shard.jdbc().update(con -> {
+            var ps = con.prepareStatement("""
+                    update kafka_event_inbox
+                       set status = ?, last_error = null, updated_at = now()
+                     where group_id = ? and status = ? and event_id = any(?)
+                    """);
+            ps.setShort(1, InboxStatus.PROCESSING.code());
+            ps.setShort(2, group);
+            ps.setShort(3, InboxStatus.FAILED.code());
+            ps.setArray(4, con.createArrayOf("uuid", eventIds.toArray()));
+            return ps;
+        }));
     }
 
+    /**
+     * Status lookup without a partition: asks every shard (only used for diagnostics and tests).
+     */
     public Optional<InboxStatus> getStatus(UUID eventId, String groupId) {
-        var rows = jdbc.query(
-                "select status from kafka_event_inbox where event_id = ? and consumer_group = ?",
-                (rs, rowNum) -> InboxStatus.valueOf(rs.getString(1).toUpperCase()),
+        for (var shard : shards.all()) {
+            var status = getStatus(shard, eventId, groupId);
+            if (status.isPresent()) return status;
+        }
+        return Optional.empty();
+    }
+
+    private Optional<InboxStatus> getStatus(UUID eventId, String groupId, int partition) {
+        return getStatus(shards.route(groupId, partition), eventId, groupId);
+    }
+
+    private Optional<InboxStatus> getStatus(Shard shard, UUID eventId, String groupId) {
+        return dictionary.findGroupId(shard, groupId).flatMap(group -> shard.jdbc().query(
+                "select status from kafka_event_inbox where event_id = ? and group_id = ?",
+                (rs, rowNum) -> InboxStatus.ofCode(rs.getShort(1)),
                 eventId,
-                groupId
-        );
-        return rows.stream().findFirst();
+                group
+        ).stream().findFirst());
     }
 }
@@ -0,0 +1,16 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.service;
+
+import java.time.Instant;
+
+/**
+ * Selection of parked poison messages; null fields do not filter. Time range is [from, to) on created_at.
+ */
+public record PoisonFilter(
+        String groupId,
+        String errorClass,
+        Instant from,
+        Instant to,
+        String fingerprint,
+        boolean includeRedriven
+) {
+}
@@ -1,30 +1,46 @@
 package com.github.dimitryivaniuta.kraftdemo.reliability.service;
 
+import com.github.dimitryivaniuta.kraftdemo.payload.ClaimCheck;
+import com.github.dimitryivaniuta.kraftdemo.payload.Payload;
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.Shard;
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.ShardRouter;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
 public class PoisonMessageService {
 
-    private final JdbcTemplate jdbc;
+    private static final Pattern NUMBERS = Pattern.compile("[0-9]+");
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void store(UUID eventIdOrNull, String groupId, ConsumerRecord<String, String> record, Exception ex) {
-        jdbc.update(
-                """                insert into kafka_poison_message(
+    private final ShardRouter shards;
+
+    /**
+     * Stored in its own transaction on the shard of (group, partition), next to the inbox row it belongs to.
+     * The value is written from its raw bytes (decoded by Postgres), never materialized as a Java String.
+     */
+    public void store(UUID eventIdOrNull, String groupId, ConsumerRecord<String, Payload> record, Exception ex) {
+        var shard = shards.route(groupId, record.partition());
+        shard.runInNewTransaction(() -> shard.jdbc().update(
+                """
+                        insert into kafka_poison_message(
                             event_id, topic, partition, offset, consumer_group,
-                            record_key, record_value,
-                            error_class, error_message, stacktrace
-                        ) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                            record_key, record_value, claim_check,
+                            error_class, error_message, stacktrace, fingerprint
+                        ) values (?, ?, ?, ?, ?, ?, convert_from(cast(? as bytea), 'UTF8'), ?, ?, ?, ?, ?)
                         """,
 
                 eventIdOrNull,
@@ -33,13 +49,122 @@ public class PoisonMessageService {
                 record.offset(),
                 groupId,
                 record.key(),
-                record.value(),
+                record.value() != null ? record.value().utf8Bytes() : null,
+                ClaimCheck.reference(record).orElse(null),
                 ex.getClass().getName(),
                 safe(ex.getMessage()),
-                stacktrace(ex)
+                stacktrace(ex),
+                fingerprint(ex.getClass().getName(), safe(ex.getMessage()))
+        ));
+    }
+
+    /**
+     * Highest poison row id on the shard (0 if empty): a re-drive only pages up to the id it saw when it started,
+     * so rows parked by re-driven records failing again are left for the next re-drive.
+     */
+    public long maxId(Shard shard) {
+        Long max = shard.jdbc().queryForObject("select coalesce(max(id), 0) from kafka_poison_message", Long.class);
+        return max == null ? 0 : max;
+    }
+
+    public long count(Shard shard, PoisonFilter filter, long upToId) {
+        var where = where(filter, 0, upToId);
+        Long count = shard.jdbc().queryForObject(
+                "select count(*) from kafka_poison_message where " + where.sql(), Long.class, where.args().toArray());
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Next page of matching rows in id order (keyset pagination: pass the last id seen), ids up to {@code upToId}.
+     */
+    public List<PoisonRow> page(Shard shard, PoisonFilter filter, long afterId, long upToId, int limit) {
+        var where = where(filter, afterId, upToId);
+        where.args().add(limit);
+        return shard.jdbc().query(
+                """
+                        select id, event_id, topic, partition, offset, consumer_group, record_key, record_value, claim_check
+                          from kafka_poison_message
+                         where %s
+                         order by id
+                         limit ?
+                        """.formatted(where.sql()),
+                (rs, rowNum) -> new PoisonRow(
+                        rs.getLong("id"),
+                        rs.getObject("event_id", UUID.class),
+                        rs.getString("topic"),
+                        rs.getInt("partition"),
+                        rs.getLong("offset"),
+                        rs.getString("consumer_group"),
+                        rs.getString("record_key"),
+                        rs.getString("record_value"),
+                        rs.getString("claim_check")
+                ),
+                where.args().toArray()
         );
     }
 
+    /**
+     * Joins the caller's shard transaction.
+     */
+    public void markRedriven(Shard shard, List<Long> ids) {
+        if (ids.isEmpty()) return;
+        shard.jdbc().update(con -> {
+            var ps = con.prepareStatement("""
+                    update kafka_poison_message
+                       set redriven_at = now(), redrive_count = redrive_count + 1
+                     where id = any(?)
+                    """);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        });
+    }
+
+    /**
+     * Groups poison rows by failure cause: error class + message with numbers masked (ids, offsets, sizes).
+     * Same formula as the V3 migration backfill.
+     */
+    static String fingerprint(String errorClass, String message) {
+        String normalized = errorClass + "|" + NUMBERS.matcher(message == null ? "" : message).replaceAll("#");
+        try {
+            byte[] md5 = MessageDigest.getInstance("MD5").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(md5).substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Where(String sql, List<Object> args) {
+    }
+
+    private static Where where(PoisonFilter filter, long afterId, long upToId) {
+        var sql = new StringBuilder("id > ? and id <= ?");
+        var args = new ArrayList<Object>();
+        args.add(afterId);
+        args.add(upToId);
+        if (!filter.includeRedriven()) sql.append(" and redriven_at is null");
+        if (filter.groupId() != null) {
+            sql.append(" and consumer_group = ?");
+            args.add(filter.groupId());
+        }
+        if (filter.errorClass() != null) {
+            sql.append(" and error_class = ?");
+            args.add(filter.errorClass());
+        }
+        if (filter.fingerprint() != null) {
+            sql.append(" and fingerprint = ?");
+            args.add(filter.fingerprint());
+        }
+        if (filter.from() != null) {
+            sql.append(" and created_at >= ?");
+            args.add(Timestamp.from(filter.from()));
+        }
+        if (filter.to() != null) {
+            sql.append(" and created_at < ?");
+            args.add(Timestamp.from(filter.to()));
+        }
+        return new Where(sql.toString(), args);
+    }
+
     private static String safe(String s) {
         if (s == null) return null;
         return s.length() > 2000 ? s.substring(0, 2000) : s;
@@ -0,0 +1,19 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.service;
+
+import java.util.UUID;
+
+/**
+ * What a re-drive needs of a parked poison message.
+ */
+public record PoisonRow(
+        long id,
+        UUID eventId,
+        String topic,
+        int partition,
+        long offset,
+        String groupId,
+        String key,
+        String value,
+        String claimCheck
+) {
+}
@@ -1,19 +1,22 @@
 package com.github.dimitryivaniuta.kraftdemo.reliability.service;
 
-import com.github.dimitryivaniuta.kraftdemo.persistence.entity.BusinessEvent;
-import com.github.dimitryivaniuta.kraftdemo.persistence.repo.BusinessEventRepository;
+import com.github.dimitryivaniuta.kraftdemo.payload.ClaimCheck;
+import com.github.dimitryivaniuta.kraftdemo.payload.Payload;
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.ShardRouter;
 import com.github.dimitryivaniuta.kraftdemo.reliability.exception.PoisonMessageException;
 import com.github.dimitryivaniuta.kraftdemo.reliability.exception.TransientProcessingException;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Instant;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * The “business logic”:
@@ -24,51 +27,137 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Delivery guarantee:
  * - Kafka consumer is at-least-once
  * - DB side effect is exactly-once (idempotent) thanks to unique constraint + inbox store
+ * <p>
+ * Side effect and inbox row live on the same shard (routed by group + partition) and commit in one shard transaction.
+ * Claim-checked records ({@link ClaimCheck}) store their blob reference as record_value.
  */
 @Service
 @RequiredArgsConstructor
 public class ProcessingService {
 
-    private final BusinessEventRepository businessRepo;
     private final InboxService inbox;
+    private final ShardRouter shards;
+    private final ClaimCheck claimCheck;
+
+    private static final byte[] POISON = "POISON".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FLAKY = "FLAKY".getBytes(StandardCharsets.US_ASCII);
 
     // demo helper: simulate transient failures for values containing "FLAKY"
     private final ConcurrentHashMap<UUID, AtomicInteger> flakyAttempts = new ConcurrentHashMap<>();
 
-    @Transactional
-    public void process(UUID eventId, String groupId, ConsumerRecord<String, String> record) {
+    /**
+     * Side effect and PROCESSED inbox row are written in one shard transaction.
+     * The insert ignores an existing side effect row (duplicate delivery after a crash between commit and
+     * offset commit) instead of failing, so the transaction stays usable for the inbox write.
+     * Validation works on the raw bytes and the value is written as bytes (decoded by Postgres); invalid UTF-8 is
+     * stored with U+FFFD replacements like a Java String decode would, see {@link Payload#utf8Bytes()}.
+     */
+    public void process(UUID eventId, String groupId, ConsumerRecord<String, Payload> record) {
         validate(record);
 
         simulateTransientFailureIfNeeded(eventId, record);
 
-        try {
-            businessRepo.save(BusinessEvent.builder()
-                    .eventId(eventId)
-                    .consumerGroup(groupId)
-                    .recordKey(record.key())
-                    .recordValue(record.value())
-                    .receivedPartition(record.partition())
-                    .receivedOffset(record.offset())
-                    .createdAt(Instant.now())
-                    .build());
-        } catch (DataIntegrityViolationException dup) {
-            // Side effect already stored (duplicate delivery) => safe to proceed as "already processed"
+        var shard = shards.route(groupId, record.partition());
+        shard.runInTransaction(() -> {
+            shard.jdbc().update(
+                    """
+                            insert into business_event(event_id, consumer_group, record_key, record_value,
+                                                       received_partition, received_offset, created_at)
+                            values (?, ?, ?, convert_from(cast(? as bytea), 'UTF8'), ?, ?, now())
+                            on conflict (event_id, consumer_group) do nothing
+                            """,
+
+                    eventId,
+                    groupId,
+                    record.key(),
+                    record.value().utf8Bytes(),
+                    record.partition(),
+                    record.offset()
+            );
+
+            inbox.markProcessed(eventId, groupId, record);
+        });
+    }
+
+    /**
+     * A record rejected by validation in {@link #processBatch}; the caller parks it as poison.
+     */
+    public record Rejected(EventRecord event, PoisonMessageException error) {
+    }
+
+    /**
+     * Bulk variant of {@link #process} used by replay:
+     * - validates every record, rejected ones are returned instead of thrown
+     * - writes side effects with one batched insert (unique by eventId + group)
+     * - marks the batch PROCESSED in the same (shard) transaction
+     * <p>
+     * With {@code overwrite} (force reprocess) an existing side effect row is updated in place,
+     * so `business_event` stays unique by eventId + group.
+     * Transient-failure simulation is not applied on this path.
+     */
+    public List<Rejected> processBatch(String groupId, List<EventRecord> batch, boolean overwrite) {
+        var accepted = new ArrayList<EventRecord>(batch.size());
+        var rejected = new ArrayList<Rejected>();
+        for (var e : batch) {
+            try {
+                validate(e.record());
+                accepted.add(e);
+            } catch (PoisonMessageException ex) {
+                rejected.add(new Rejected(e, ex));
+            }
         }
+        if (accepted.isEmpty()) return rejected;
+
+        String sql = """
+                insert into business_event(event_id, consumer_group, record_key, record_value,
+                                           received_partition, received_offset, created_at)
+                values (?, ?, ?, convert_from(cast(? as bytea), 'UTF8'), ?, ?, now())
+                on conflict (event_id, consumer_group) do
+                """ + (overwrite
+                ? """
+                 update
+                   set record_key = excluded.record_key,
+                       record_value = excluded.record_value,
+                       received_partition = excluded.received_partition,
+                       received_offset = excluded.received_offset
+                """
+                : " nothing");
 
-        inbox.markProcessed(eventId, groupId);
+        // one transaction per shard (a replay batch normally comes from a single partition => single shard)
+        var byShard = accepted.stream().collect(Collectors.groupingBy(
+                e -> shards.route(groupId, e.record().partition()).index(), TreeMap::new, Collectors.toList()));
+        byShard.forEach((shardIndex, events) -> {
+            var shard = shards.all().get(shardIndex);
+            shard.runInTransaction(() -> {
+                shard.jdbc().batchUpdate(sql, events, events.size(), (ps, e) -> {
+                    ps.setObject(1, e.eventId());
+                    ps.setString(2, groupId);
+                    ps.setString(3, e.record().key());
+                    ps.setBytes(4, e.record().value().utf8Bytes());
+                    ps.setInt(5, e.record().partition());
+                    ps.setLong(6, e.record().offset());
+                });
+                inbox.markProcessedBatch(groupId, events);
+            });
+        });
+        return rejected;
     }
 
-    private static void validate(ConsumerRecord<String, String> record) {
+    /**
+     * Content checks run on the real value: claim-checked blobs are streamed, never loaded.
+     * Also used by key coalescing, so records it would drop are still parked when invalid.
+     */
+    public void validate(ConsumerRecord<String, Payload> record) {
         if (record.value() == null || record.value().isBlank()) {
             throw new PoisonMessageException("Payload is blank");
         }
-        if (record.value().contains("POISON")) {
+        if (claimCheck.containsAscii(record, POISON)) {
             throw new PoisonMessageException("Payload marked as POISON");
         }
     }
 
-    private void simulateTransientFailureIfNeeded(UUID eventId, ConsumerRecord<String, String> record) {
-        if (!record.value().contains("FLAKY")) return;
+    private void simulateTransientFailureIfNeeded(UUID eventId, ConsumerRecord<String, Payload> record) {
+        if (!claimCheck.containsAscii(record, FLAKY)) return;
 
         var counter = flakyAttempts.computeIfAbsent(eventId, id -> new AtomicInteger(0));
         int attempt = counter.incrementAndGet();
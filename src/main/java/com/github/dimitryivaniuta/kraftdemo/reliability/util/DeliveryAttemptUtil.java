@@ -0,0 +1,25 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.util;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads spring-kafka's delivery attempt header (enabled in KafkaListenerFactoryConfig).
+ * <p>
+ * The container sets it before every delivery from the error handler's in-memory failure tracker:
+ * 1 for the first delivery, 2..n for in-thread retries. After a restart/rebalance it starts at 1 again.
+ */
+public final class DeliveryAttemptUtil {
+
+    private DeliveryAttemptUtil() {
+    }
+
+    public static int deliveryAttempt(ConsumerRecord<?, ?> record) {
+        Header h = record.headers().lastHeader(KafkaHeaders.DELIVERY_ATTEMPT);
+        if (h == null || h.value() == null || h.value().length != Integer.BYTES) return 1;
+        return ByteBuffer.wrap(h.value()).getInt();
+    }
+}
@@ -13,29 +13,65 @@ import java.util.UUID;
  * Producer always sets header 'x-event-id'.
  * If it's missing (e.g., legacy publisher), we fall back to a deterministic ID derived from topic/partition/offset,
  * which is stable for redeliveries of the same record.
+ * <p>
+ * The header is parsed straight from its bytes (no intermediate String) since this runs for every record,
+ * duplicates included.
  */
 public final class EventIdUtil {
 
+    public static final String EVENT_ID_HEADER = "x-event-id";
+
+    private static final int CANONICAL_LENGTH = 36;
+
     private EventIdUtil() {
     }
 
-    public static UUID resolveEventId(ConsumerRecord<String, String> record) {
+    public static UUID resolveEventId(ConsumerRecord<?, ?> record) {
         return readEventIdHeader(record).orElseGet(() -> deterministicFromRecord(record));
     }
 
-    public static Optional<UUID> readEventIdHeader(ConsumerRecord<String, String> record) {
-        Header h = record.headers().lastHeader("x-event-id");
-        if (h == null) return Optional.empty();
+    public static Optional<UUID> readEventIdHeader(ConsumerRecord<?, ?> record) {
+        Header h = record.headers().lastHeader(EVENT_ID_HEADER);
+        if (h == null || h.value() == null) return Optional.empty();
         try {
-            return Optional.of(UUID.fromString(new String(h.value(), StandardCharsets.UTF_8)));
+            return Optional.of(parse(h.value()));
         } catch (Exception ignore) {
             return Optional.empty();
         }
     }
 
-    private static UUID deterministicFromRecord(ConsumerRecord<String, String> record) {
-        // stable for re-deliveries: same topic/partition/offset
-        String raw = record.topic() + "|" + record.partition() + "|" + record.offset();
+    /**
+     * Parses the canonical 8-4-4-4-12 hex form from ASCII bytes; anything else goes through UUID.fromString.
+     */
+    static UUID parse(byte[] ascii) {
+        if (ascii.length != CANONICAL_LENGTH
+                || ascii[8] != '-' || ascii[13] != '-' || ascii[18] != '-' || ascii[23] != '-') {
+            return UUID.fromString(new String(ascii, StandardCharsets.UTF_8));
+        }
+        long msb = hex(ascii, 0, 8) << 32 | hex(ascii, 9, 13) << 16 | hex(ascii, 14, 18);
+        long lsb = hex(ascii, 19, 23) << 48 | hex(ascii, 24, 36);
+        return new UUID(msb, lsb);
+    }
+
+    private static long hex(byte[] ascii, int from, int to) {
+        long v = 0;
+        for (int i = from; i < to; i++) {
+            int d = Character.digit(ascii[i], 16);
+            if (d < 0) throw new IllegalArgumentException("Invalid UUID");
+            v = v << 4 | d;
+        }
+        return v;
+    }
+
+    private static UUID deterministicFromRecord(ConsumerRecord<?, ?> record) {
+        return deterministic(record.topic(), record.partition(), record.offset());
+    }
+
+    /**
+     * Fallback id of a record without header; stable for re-deliveries (same topic/partition/offset).
+     */
+    public static UUID deterministic(String topic, int partition, long offset) {
+        String raw = topic + "|" + partition + "|" + offset;
         return UUID.nameUUIDFromBytes(raw.getBytes(StandardCharsets.UTF_8));
     }
 }
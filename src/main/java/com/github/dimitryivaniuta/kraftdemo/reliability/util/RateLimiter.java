@@ -0,0 +1,36 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal pacing rate limiter for bulk jobs (replay, re-drive).
+ * <p>
+ * Permits are handed out at a fixed rate; a caller asking for more permits than are currently
+ * available sleeps until the schedule catches up. A non-positive rate disables limiting.
+ */
+public final class RateLimiter {
+
+    private final long nanosPerPermit;
+    private long nextFreeNanos;
+
+    public RateLimiter(int permitsPerSecond) {
+        this.nanosPerPermit = permitsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / permitsPerSecond : 0;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    public void acquire(int permits) throws InterruptedException {
+        if (nanosPerPermit == 0 || permits <= 0) return;
+
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            // do not let an idle period accumulate an unbounded burst
+            long start = Math.max(nextFreeNanos, now);
+            nextFreeNanos = start + nanosPerPermit * permits;
+            waitNanos = start - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
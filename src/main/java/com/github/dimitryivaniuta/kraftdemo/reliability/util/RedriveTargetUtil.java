@@ -0,0 +1,36 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.util;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Target groups of a re-driven record: header 'x-redrive-groups' with the comma separated inbox group ids whose
+ * poison rows were re-driven.
+ * <p>
+ * A re-drive re-publishes to the shared topic, which every group consumes. Groups not listed skip the record
+ * without touching their inbox, so a re-drive filtered to one group leaves the other groups alone.
+ * Records without the header (regular traffic) are for every group.
+ */
+public final class RedriveTargetUtil {
+
+    public static final String REDRIVE_GROUPS_HEADER = "x-redrive-groups";
+
+    private RedriveTargetUtil() {
+    }
+
+    public static boolean isTargeted(ConsumerRecord<?, ?> record, String groupId) {
+        Header h = record.headers().lastHeader(REDRIVE_GROUPS_HEADER);
+        if (h == null || h.value() == null) return true;
+        for (String target : new String(h.value(), StandardCharsets.UTF_8).split(",")) {
+            if (target.equals(groupId)) return true;
+        }
+        return false;
+    }
+
+    public static byte[] encode(Collection<String> groupIds) {
+        return String.join(",", groupIds).getBytes(StandardCharsets.UTF_8);
+    }
+}
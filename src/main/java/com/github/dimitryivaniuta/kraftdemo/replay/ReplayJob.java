@@ -0,0 +1,118 @@
+package com.github.dimitryivaniuta.kraftdemo.replay;
+
+import com.github.dimitryivaniuta.kraftdemo.api.ReplayRequest;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mutable state of one replay run.
+ * <p>
+ * Written by the single replay worker thread, read by REST callers via {@link #snapshot()}.
+ */
+@Getter
+class ReplayJob {
+
+    private final UUID id = UUID.randomUUID();
+    private final ReplayRequest request;
+    private final Map<Integer, PartitionProgress> partitions = new ConcurrentHashMap<>();
+
+    private volatile ReplayStatus.State state = ReplayStatus.State.PENDING;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    ReplayJob(ReplayRequest request) {
+        this.request = request;
+    }
+
+    void running() {
+        startedAt = Instant.now();
+        state = ReplayStatus.State.RUNNING;
+    }
+
+    void completed() {
+        finishedAt = Instant.now();
+        state = ReplayStatus.State.COMPLETED;
+    }
+
+    void failed(Exception ex) {
+        finishedAt = Instant.now();
+        error = ex.toString();
+        state = ReplayStatus.State.FAILED;
+    }
+
+    boolean isActive() {
+        return state == ReplayStatus.State.PENDING || state == ReplayStatus.State.RUNNING;
+    }
+
+    PartitionProgress track(int partition, long startOffset, long endOffset) {
+        var progress = new PartitionProgress(partition, startOffset, endOffset);
+        partitions.put(partition, progress);
+        return progress;
+    }
+
+    ReplayStatus snapshot() {
+        return new ReplayStatus(
+                id,
+                request.groupId(),
+                request.lane(),
+                state,
+                request.forceReprocess(),
+                startedAt,
+                finishedAt,
+                error,
+                partitions.values().stream()
+                        .map(PartitionProgress::snapshot)
+                        .sorted(Comparator.comparingInt(ReplayStatus.PartitionStatus::partition))
+                        .toList()
+        );
+    }
+
+    static final class PartitionProgress {
+        private final int partition;
+        private final long startOffset;
+        private final long endOffset;
+
+        private volatile long position;
+        private volatile long processed;
+        private volatile long duplicatesSkipped;
+        private volatile long poison;
+
+        private PartitionProgress(int partition, long startOffset, long endOffset) {
+            this.partition = partition;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.position = startOffset;
+        }
+
+        long endOffset() {
+            return endOffset;
+        }
+
+        // single writer (replay worker) => plain volatile increments are safe
+        void onBatch(long nextPosition, int processedCount, int duplicateCount, int poisonCount) {
+            position = nextPosition;
+            processed += processedCount;
+            duplicatesSkipped += duplicateCount;
+            poison += poisonCount;
+        }
+
+        void reached(long nextPosition) {
+            position = Math.min(endOffset, Math.max(position, nextPosition));
+        }
+
+        boolean isDone() {
+            return position >= endOffset;
+        }
+
+        ReplayStatus.PartitionStatus snapshot() {
+            return new ReplayStatus.PartitionStatus(partition, startOffset, endOffset, position,
+                    processed, duplicatesSkipped, poison);
+        }
+    }
+}
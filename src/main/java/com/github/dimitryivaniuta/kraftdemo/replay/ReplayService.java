@@ -0,0 +1,283 @@
+package com.github.dimitryivaniuta.kraftdemo.replay;
+
+import com.github.dimitryivaniuta.kraftdemo.api.ReplayRequest;
+import com.github.dimitryivaniuta.kraftdemo.consumer.PartitionedConsumers;
+import com.github.dimitryivaniuta.kraftdemo.payload.Payload;
+import com.github.dimitryivaniuta.kraftdemo.producer.Priority;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.EventRecord;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.InboxService;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.PoisonMessageService;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.ProcessingService;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.EventIdUtil;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.RateLimiter;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * High-speed replay / backfill for one consumer group and lane.
+ * <p>
+ * How it works:
+ * - the lane's topic is replayed; the lane's listener containers of the group (Kafka group id, see
+ *   {@link PartitionedConsumers#kafkaGroupId}) on this instance are stopped for the duration of the replay -
+ *   the other lane keeps running
+ * - a dedicated consumer (same group.id, manual assignment, large polls) seeks every partition to its start position
+ * - records are processed in batches: one dedup query, one batched side-effect insert, one batched PROCESSED upsert
+ * - throughput is capped by a rate limiter, progress is tracked per partition
+ * - at the end the group's committed offset is advanced to the replay end, but only where that does not skip records
+ * <p>
+ * Other application instances consuming the same group must be stopped as well, otherwise the broker rejects
+ * the final offset commit (the group is not empty).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReplayService {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final ConsumerFactory<String, Payload> consumerFactory;
+    private final KafkaListenerEndpointRegistry registry;
+    private final InboxService inbox;
+    private final ProcessingService processing;
+    private final PoisonMessageService poison;
+
+    private final Map<UUID, ReplayJob> jobs = new ConcurrentHashMap<>();
+    // replays run one at a time, off the request thread
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "kafka-replay"));
+
+    @Value("${app.topic.name}")
+    private String topic;
+
+    @Value("${app.topic.high-priority-name}")
+    private String highPriorityTopic;
+
+    @Value("${app.replay.max-poll-records:2000}")
+    private int maxPollRecords;
+
+    @Value("${app.replay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.replay.default-max-records-per-second:5000}")
+    private int defaultMaxRecordsPerSecond;
+
+    /**
+     * Schedules a replay.
+     *
+     * @return empty if a replay for the same group and lane is already pending/running
+     */
+    public synchronized Optional<ReplayStatus> start(ReplayRequest request) {
+        boolean busy = jobs.values().stream()
+                .anyMatch(j -> j.isActive()
+                        && j.getRequest().groupId().equals(request.groupId())
+                        && j.getRequest().lane() == request.lane());
+        if (busy) return Optional.empty();
+
+        var job = new ReplayJob(request);
+        jobs.put(job.getId(), job);
+        executor.submit(() -> run(job));
+        return Optional.of(job.snapshot());
+    }
+
+    public Optional<ReplayStatus> status(UUID replayId) {
+        return Optional.ofNullable(jobs.get(replayId)).map(ReplayJob::snapshot);
+    }
+
+    public List<ReplayStatus> statuses() {
+        return jobs.values().stream().map(ReplayJob::snapshot).toList();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ReplayJob job) {
+        String groupId = job.getRequest().groupId();
+        String kafkaGroupId = PartitionedConsumers.kafkaGroupId(groupId, job.getRequest().lane());
+        List<MessageListenerContainer> stopped = registry.getListenerContainers().stream()
+                .filter(c -> kafkaGroupId.equals(c.getGroupId()) && c.isRunning())
+                .toList();
+
+        job.running();
+        log.info("[REPLAY] start replayId={} group={} lane={} force={} stopping {} listener container(s)",
+                job.getId(), groupId, job.getRequest().lane(), job.getRequest().forceReprocess(), stopped.size());
+        stopped.forEach(MessageListenerContainer::stop);
+
+        try (Consumer<String, Payload> consumer = consumerFactory.createConsumer(
+                kafkaGroupId, "replay-" + kafkaGroupId, null, bulkConsumerOverrides())) {
+            replay(job, consumer);
+            job.completed();
+            log.info("[REPLAY] done replayId={} group={} partitions={}", job.getId(), groupId, job.snapshot().partitions());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            job.failed(ie);
+        } catch (Exception ex) {
+            log.error("[REPLAY] failed replayId={} group={}", job.getId(), groupId, ex);
+            job.failed(ex);
+        } finally {
+            // interrupted => application is shutting down, do not resurrect the listeners
+            if (!Thread.currentThread().isInterrupted()) {
+                stopped.forEach(MessageListenerContainer::start);
+            }
+        }
+    }
+
+    private void replay(ReplayJob job, Consumer<String, Payload> consumer) throws InterruptedException {
+        var request = job.getRequest();
+        String groupId = request.groupId();
+
+        List<TopicPartition> partitions = consumer.partitionsFor(topicOf(request.lane())).stream()
+                .map(p -> new TopicPartition(p.topic(), p.partition()))
+                .toList();
+        consumer.assign(partitions);
+
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+        Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+        Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+        Map<TopicPartition, OffsetAndTimestamp> byTimestamp = request.fromTimestamp() == null
+                ? Map.of()
+                : consumer.offsetsForTimes(partitions.stream()
+                .collect(Collectors.toMap(tp -> tp, tp -> request.fromTimestamp().toEpochMilli())));
+
+        Map<TopicPartition, ReplayJob.PartitionProgress> active = new HashMap<>();
+        for (var tp : partitions) {
+            long endOffset = end.get(tp);
+            Long requestedEnd = request.toOffsets() != null ? request.toOffsets().get(tp.partition()) : null;
+            if (requestedEnd != null) endOffset = Math.min(endOffset, requestedEnd);
+
+            long startOffset = Math.max(beginning.get(tp), startOffset(request, tp, byTimestamp, endOffset));
+            var progress = job.track(tp.partition(), startOffset, Math.max(startOffset, endOffset));
+            if (progress.isDone()) continue;
+
+            consumer.seek(tp, startOffset);
+            active.put(tp, progress);
+        }
+        consumer.pause(partitions.stream().filter(tp -> !active.containsKey(tp)).toList());
+
+        int rate = request.maxRecordsPerSecond() != null ? request.maxRecordsPerSecond() : defaultMaxRecordsPerSecond;
+        var limiter = new RateLimiter(rate);
+
+        while (!active.isEmpty()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Replay interrupted");
+            }
+
+            var records = consumer.poll(POLL_TIMEOUT);
+            for (var tp : records.partitions()) {
+                var progress = active.get(tp);
+                if (progress == null) continue;
+
+                var inRange = records.records(tp).stream()
+                        .filter(r -> r.offset() < progress.endOffset())
+                        .toList();
+                for (int from = 0; from < inRange.size(); from += batchSize) {
+                    var chunk = inRange.subList(from, Math.min(from + batchSize, inRange.size()));
+                    limiter.acquire(chunk.size());
+                    replayBatch(groupId, chunk, request.forceReprocess(), progress);
+                }
+            }
+
+            // done once the position passes the end offset (also covers offset gaps, e.g. transaction markers)
+            for (var it = active.entrySet().iterator(); it.hasNext(); ) {
+                var e = it.next();
+                e.getValue().reached(consumer.position(e.getKey()));
+                if (e.getValue().isDone()) {
+                    consumer.pause(List.of(e.getKey()));
+                    it.remove();
+                }
+            }
+        }
+
+        commitReplayedOffsets(job, consumer, partitions, committed, beginning);
+    }
+
+    private String topicOf(Priority lane) {
+        return lane == Priority.HIGH ? highPriorityTopic : topic;
+    }
+
+    private static long startOffset(ReplayRequest request, TopicPartition tp,
+                                    Map<TopicPartition, OffsetAndTimestamp> byTimestamp, long endOffset) {
+        if (request.fromOffsets() != null && request.fromOffsets().containsKey(tp.partition())) {
+            return request.fromOffsets().get(tp.partition());
+        }
+        var found = byTimestamp.get(tp);
+        // no record at/after the timestamp (or partition not requested) => nothing to replay
+        return found != null ? found.offset() : endOffset;
+    }
+
+    private void replayBatch(String groupId, List<ConsumerRecord<String, Payload>> chunk, boolean force,
+                             ReplayJob.PartitionProgress progress) {
+        var batch = chunk.stream()
+                .map(r -> new EventRecord(EventIdUtil.resolveEventId(r), r))
+                .toList();
+
+        var claimed = inbox.claimBatch(groupId, batch, force);
+        var rejected = claimed.isEmpty()
+                ? List.<ProcessingService.Rejected>of()
+                : processing.processBatch(groupId, claimed, force);
+
+        for (var r : rejected) {
+            inbox.markFailed(r.event().eventId(), groupId, r.event().record(),
+                    r.error().getClass().getSimpleName() + ": " + r.error().getMessage());
+            poison.store(r.event().eventId(), groupId, r.event().record(), r.error());
+        }
+
+        progress.onBatch(chunk.getLast().offset() + 1,
+                claimed.size() - rejected.size(),
+                batch.size() - claimed.size(),
+                rejected.size());
+    }
+
+    /**
+     * Advances the group's committed offset to the replay end where the replay covered the live position,
+     * so the restarted listeners do not process the replayed range a second time.
+     * Never moves a committed offset backwards and never skips records the replay did not cover.
+     */
+    private static void commitReplayedOffsets(ReplayJob job, Consumer<String, Payload> consumer,
+                                              List<TopicPartition> partitions,
+                                              Map<TopicPartition, OffsetAndMetadata> committed,
+                                              Map<TopicPartition, Long> beginning) {
+        var commits = new HashMap<TopicPartition, OffsetAndMetadata>();
+        for (var tp : partitions) {
+            var status = job.getPartitions().get(tp.partition()).snapshot();
+            var current = committed.get(tp);
+            long live = current != null ? current.offset() : beginning.get(tp);
+
+            if (status.startOffset() <= live && live < status.endOffset()) {
+                commits.put(tp, new OffsetAndMetadata(status.endOffset()));
+            }
+        }
+        if (!commits.isEmpty()) {
+            consumer.commitSync(commits);
+        }
+    }
+
+    private Properties bulkConsumerOverrides() {
+        var props = new Properties();
+        props.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords));
+        props.setProperty(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, String.valueOf(8 * 1024 * 1024));
+        props.setProperty(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, String.valueOf(256 * 1024));
+        props.setProperty(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, "200");
+        props.setProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        return props;
+    }
+}
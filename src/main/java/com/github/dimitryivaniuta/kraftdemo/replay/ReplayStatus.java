@@ -0,0 +1,44 @@
+package com.github.dimitryivaniuta.kraftdemo.replay;
+
+import com.github.dimitryivaniuta.kraftdemo.producer.Priority;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Point-in-time view of a replay job (returned by the REST API).
+ */
+public record ReplayStatus(
+        UUID replayId,
+        String groupId,
+        Priority lane,
+        State state,
+        boolean forceReprocess,
+        Instant startedAt,
+        Instant finishedAt,
+        String error,
+        List<PartitionStatus> partitions
+) {
+
+    public enum State {PENDING, RUNNING, COMPLETED, FAILED}
+
+    /**
+     * Offsets are [startOffset, endOffset); position is the next offset to be replayed.
+     */
+    public record PartitionStatus(
+            int partition,
+            long startOffset,
+            long endOffset,
+            long position,
+            long processed,
+            long duplicatesSkipped,
+            long poison
+    ) {
+        public double percentDone() {
+            long total = endOffset - startOffset;
+            if (total <= 0) return 100.0;
+            return Math.min(100.0, 100.0 * (position - startOffset) / total);
+        }
+    }
+}
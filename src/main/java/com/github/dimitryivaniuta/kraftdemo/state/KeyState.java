@@ -0,0 +1,33 @@
+package com.github.dimitryivaniuta.kraftdemo.state;
+
+/**
+ * Materialized per-key aggregate of the demo topic and its high-priority lane:
+ * - latestValue / lastTopic / lastPartition / lastOffset / lastTimestamp: the record with the newest timestamp
+ *   (equal timestamps: the one that arrived last); offsets only compare within lastTopic
+ * - count: records produced for the key on either lane; re-drive copies of a parked record are not counted again
+ */
+public record KeyState(
+        String key,
+        String latestValue,
+        long count,
+        String lastTopic,
+        int lastPartition,
+        long lastOffset,
+        long lastTimestamp
+) {
+
+    static KeyState first(String key, String value, String topic, int partition, long offset, long timestamp) {
+        return new KeyState(key, value, 1, topic, partition, offset, timestamp);
+    }
+
+    /**
+     * An older record arriving late (lanes are not ordered against each other) is counted but does not replace
+     * the latest value.
+     */
+    KeyState next(String value, String topic, int partition, long offset, long timestamp) {
+        if (timestamp < lastTimestamp) {
+            return new KeyState(key, latestValue, count + 1, lastTopic, lastPartition, lastOffset, lastTimestamp);
+        }
+        return new KeyState(key, value, count + 1, topic, partition, offset, timestamp);
+    }
+}
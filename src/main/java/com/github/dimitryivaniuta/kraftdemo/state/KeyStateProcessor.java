@@ -0,0 +1,44 @@
+package com.github.dimitryivaniuta.kraftdemo.state;
+
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.RedriveTargetUtil;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+/**
+ * Folds each record into the key's {@link KeyState}.
+ * <p>
+ * Processor API instead of a DSL aggregate because the aggregate carries the source partition/offset, which is
+ * only available from the record metadata.
+ * <p>
+ * Re-drive copies (x-redrive-groups) are skipped: they repeat a parked record this processor already folded.
+ */
+class KeyStateProcessor implements Processor<String, String, Void, Void> {
+
+    private ProcessorContext<Void, Void> context;
+    private KeyValueStore<String, KeyState> store;
+
+    @Override
+    public void init(ProcessorContext<Void, Void> context) {
+        this.context = context;
+        this.store = context.getStateStore(KeyStateTopology.STORE);
+    }
+
+    @Override
+    public void process(Record<String, String> record) {
+        // records without a key cannot be attributed to a key
+        if (record.key() == null) return;
+        if (record.headers().lastHeader(RedriveTargetUtil.REDRIVE_GROUPS_HEADER) != null) return;
+
+        var metadata = context.recordMetadata();
+        String topic = metadata.map(m -> m.topic()).orElse(null);
+        int partition = metadata.map(m -> m.partition()).orElse(-1);
+        long offset = metadata.map(m -> m.offset()).orElse(-1L);
+
+        var previous = store.get(record.key());
+        store.put(record.key(), previous == null
+                ? KeyState.first(record.key(), record.value(), topic, partition, offset, record.timestamp())
+                : previous.next(record.value(), topic, partition, offset, record.timestamp()));
+    }
+}
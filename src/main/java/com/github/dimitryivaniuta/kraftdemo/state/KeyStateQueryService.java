@@ -0,0 +1,44 @@
+package com.github.dimitryivaniuta.kraftdemo.state;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.springframework.kafka.streams.KafkaStreamsInteractiveQueryService;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Point lookups against the local key-state store (no Postgres involved).
+ * <p>
+ * With several instances each one holds the keys of its assigned partitions; {@link #remoteOwner} tells which
+ * instance ({@code application.server}) to ask instead.
+ */
+@Service
+@RequiredArgsConstructor
+public class KeyStateQueryService {
+
+    private static final StringSerializer KEYS = new StringSerializer();
+
+    private final KafkaStreamsInteractiveQueryService queries;
+
+    /**
+     * Fails (after the query service's retries) while the streams app is not running yet or the store is
+     * migrating in a rebalance.
+     */
+    public Optional<KeyState> find(String key) {
+        var store = queries.retrieveQueryableStore(KeyStateTopology.STORE,
+                QueryableStoreTypes.<String, KeyState>keyValueStore());
+        return Optional.ofNullable(store.get(key));
+    }
+
+    /**
+     * Instance owning the key if it is not this one; empty when local (or when no application.server is set).
+     */
+    public Optional<HostInfo> remoteOwner(String key) {
+        HostInfo owner = queries.getKafkaStreamsApplicationServerHostInfo(KeyStateTopology.STORE, key, KEYS);
+        if (owner == null || owner.port() < 0) return Optional.empty();
+        return owner.equals(queries.getCurrentKafkaStreamsApplicationHostInfo()) ? Optional.empty() : Optional.of(owner);
+    }
+}
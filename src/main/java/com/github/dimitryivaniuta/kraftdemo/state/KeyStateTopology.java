@@ -0,0 +1,40 @@
+package com.github.dimitryivaniuta.kraftdemo.state;
+
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.state.Stores;
+import org.springframework.kafka.support.serializer.JsonSerde;
+
+import java.util.List;
+
+/**
+ * demo topic + its high-priority lane -> per-key {@link KeyState} in a local RocksDB store (backed by a changelog
+ * topic).
+ * <p>
+ * Both lanes feed one source: they have the same partition count, so a key lands in the same task (and store)
+ * whichever lane carried it. Order between the lanes is not defined, so the latest value is picked by record
+ * timestamp and the state records the topic of its position (see {@link KeyState}).
+ * <p>
+ * Kept free of Spring wiring so it can be built on a plain StreamsBuilder (TopologyTestDriver).
+ */
+public final class KeyStateTopology {
+
+    public static final String STORE = "key-state";
+
+    private KeyStateTopology() {
+    }
+
+    public static void build(StreamsBuilder builder, String... topics) {
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(STORE), Serdes.String(), keyStateSerde()));
+
+        builder.stream(List.of(topics), Consumed.with(Serdes.String(), Serdes.String()))
+                .process(KeyStateProcessor::new, STORE);
+    }
+
+    public static Serde<KeyState> keyStateSerde() {
+        return new JsonSerde<>(KeyState.class).noTypeInfo().ignoreTypeHeaders();
+    }
+}
@@ -0,0 +1,56 @@
+-- Compact inbox row: group/topic names interned into smallint dictionaries, status as smallint.
+-- Rows are written once at the terminal transition and later only flip status/attempt/last_error
+-- (e.g. FAILED -> PROCESSED), so with free space on the page and no index on any updated column these
+-- updates are HOT (no index writes, no new index tuples to vacuum).
+--
+-- Status codes: 0 = PROCESSING, 1 = PROCESSED, 2 = FAILED (see InboxService.InboxStatus)
+
+create table if not exists kafka_consumer_group_dict (
+    id smallint generated by default as identity primary key,
+    name text not null unique
+);
+
+create table if not exists kafka_topic_dict (
+    id smallint generated by default as identity primary key,
+    name text not null unique
+);
+
+alter table kafka_event_inbox rename to kafka_event_inbox_v1;
+alter table kafka_event_inbox_v1 rename constraint kafka_event_inbox_pkey to kafka_event_inbox_v1_pkey;
+drop index if exists idx_inbox_group_status;
+
+-- columns ordered widest first to avoid alignment padding
+create table kafka_event_inbox (
+    event_id uuid not null,
+    offset bigint not null,
+    created_at timestamptz not null default now(),
+    updated_at timestamptz not null default now(),
+    partition int not null,
+    attempt int not null,
+    group_id smallint not null references kafka_consumer_group_dict (id),
+    topic_id smallint not null references kafka_topic_dict (id),
+    status smallint not null,
+    last_error text null,
+    primary key (event_id, group_id)
+) with (fillfactor = 80);
+
+-- migrate existing rows
+insert into kafka_consumer_group_dict (name)
+select distinct consumer_group from kafka_event_inbox_v1
+on conflict (name) do nothing;
+
+insert into kafka_topic_dict (name)
+select distinct topic from kafka_event_inbox_v1
+on conflict (name) do nothing;
+
+insert into kafka_event_inbox (event_id, offset, created_at, updated_at, partition, attempt,
+                               group_id, topic_id, status, last_error)
+select i.event_id, i.offset, i.created_at, i.updated_at, i.partition, i.attempt,
+       g.id, t.id,
+       case upper(i.status) when 'PROCESSING' then 0 when 'PROCESSED' then 1 else 2 end,
+       i.last_error
+  from kafka_event_inbox_v1 i
+  join kafka_consumer_group_dict g on g.name = i.consumer_group
+  join kafka_topic_dict t on t.name = i.topic;
+
+drop table kafka_event_inbox_v1;
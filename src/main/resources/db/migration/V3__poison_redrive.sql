@@ -0,0 +1,20 @@
+-- Re-drive support for parked poison messages:
+-- - fingerprint groups poison rows by failure cause (error class + message with numbers masked), so one fix can be
+--   re-driven by fingerprint; must stay in sync with PoisonMessageService.fingerprint
+-- - claim_check keeps the blob reference header of claim-checked records (record_value holds the reference)
+-- - redriven_at / redrive_count track re-drives; pending rows have redriven_at null
+
+alter table kafka_poison_message
+    add column if not exists fingerprint varchar(16) null,
+    add column if not exists claim_check text null,
+    add column if not exists redriven_at timestamptz null,
+    add column if not exists redrive_count int not null default 0;
+
+update kafka_poison_message
+   set fingerprint = left(md5(error_class || '|' || regexp_replace(coalesce(error_message, ''), '[0-9]+', '#', 'g')), 16)
+ where fingerprint is null;
+
+create index if not exists idx_poison_pending_group_created
+    on kafka_poison_message (consumer_group, created_at) where redriven_at is null;
+
+create index if not exists idx_poison_fingerprint on kafka_poison_message (fingerprint);
@@ -0,0 +1,137 @@
+package com.github.dimitryivaniuta.kraftdemo;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Before/after measurement of the V2 inbox layout on the same data:
+ * <p>
+ * - load rows into the V1 table, run one status transition per row (one transaction each, like the consumer),
+ * measure table+index size, HOT ratio and claim (PK lookup) latency
+ * - migrate to V2 (exercises the data migration), run the same transitions, measure again
+ * <p>
+ * Numbers are printed; size and HOT behaviour are asserted, latency is only reported (too machine dependent).
+ */
+@Testcontainers
+class InboxFootprintIT {
+
+    private static final int ROWS = 20_000;
+    private static final int LOOKUPS = 5_000;
+    private static final String GROUP = "group-a";
+    private static final String TOPIC = "demo.events";
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"))
+            .withDatabaseName("kraft_demo")
+            .withUsername("kraft")
+            .withPassword("kraft");
+
+    record Footprint(long totalBytes, long updates, long hotUpdates, double claimMicros) {
+        double hotRatio() {
+            return updates == 0 ? 0 : (double) hotUpdates / updates;
+        }
+    }
+
+    @Test
+    void compact_layout_is_smaller_and_status_transitions_are_hot() {
+        var ds = new SingleConnectionDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword(), true);
+        var jdbc = new JdbcTemplate(ds);
+
+        migrate(MigrationVersion.fromVersion("1"));
+        List<UUID> ids = load(jdbc);
+        for (UUID id : ids) {
+            jdbc.update("""
+                    update kafka_event_inbox
+                       set status = 'PROCESSED', topic = ?, partition = 0, offset = 0,
+                           attempt = attempt + 1, updated_at = now()
+                     where event_id = ? and consumer_group = ?
+                    """, TOPIC, id, GROUP);
+        }
+        var before = measure(jdbc, ids,
+                "select status from kafka_event_inbox where event_id = ? and consumer_group = ?", GROUP);
+
+        migrate(MigrationVersion.LATEST);
+        assertThat(jdbc.queryForObject("select count(*) from kafka_event_inbox where status = 1", Integer.class))
+                .isEqualTo(ROWS);
+
+        short group = jdbc.queryForObject("select id from kafka_consumer_group_dict where name = ?", Short.class, GROUP);
+        for (UUID id : ids) {
+            jdbc.update("""
+                    update kafka_event_inbox
+                       set status = 2, attempt = attempt + 1, updated_at = now()
+                     where event_id = ? and group_id = ?
+                    """, id, group);
+        }
+        var after = measure(jdbc, ids,
+                "select status from kafka_event_inbox where event_id = ? and group_id = ?", group);
+
+        System.out.printf("inbox V1: %d bytes, HOT %.0f%%, claim %.1f us%n",
+                before.totalBytes(), before.hotRatio() * 100, before.claimMicros());
+        System.out.printf("inbox V2: %d bytes, HOT %.0f%%, claim %.1f us%n",
+                after.totalBytes(), after.hotRatio() * 100, after.claimMicros());
+
+        assertThat(after.totalBytes()).isLessThan(before.totalBytes());
+        assertThat(before.hotRatio()).isLessThan(0.1);
+        assertThat(after.hotRatio()).isGreaterThan(0.8);
+
+        ds.destroy();
+    }
+
+    private static void migrate(MigrationVersion target) {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .target(target)
+                .load()
+                .migrate();
+    }
+
+    private static List<UUID> load(JdbcTemplate jdbc) {
+        var ids = new ArrayList<UUID>(ROWS);
+        for (int i = 0; i < ROWS; i++) ids.add(UUID.randomUUID());
+        jdbc.batchUpdate("""
+                        insert into kafka_event_inbox(event_id, consumer_group, topic, partition, offset, status, attempt)
+                        values (?, ?, ?, ?, ?, 'FAILED', 1)
+                        """,
+                ids, 1_000,
+                (ps, id) -> {
+                    ps.setObject(1, id);
+                    ps.setString(2, GROUP);
+                    ps.setString(3, TOPIC);
+                    ps.setInt(4, 0);
+                    ps.setLong(5, 0);
+                });
+        return ids;
+    }
+
+    private static Footprint measure(JdbcTemplate jdbc, List<UUID> ids, String claimSql, Object group) {
+        // lookups first (warm cache), then timed
+        for (int i = 0; i < LOOKUPS; i++) jdbc.queryForObject(claimSql, Object.class, ids.get(i), group);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) jdbc.queryForObject(claimSql, Object.class, ids.get(ROWS - 1 - i), group);
+        double claimMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - t0) / (double) LOOKUPS;
+
+        // this backend's table counters are reported lazily; flush them before reading
+        jdbc.execute("select pg_stat_force_next_flush()");
+        jdbc.execute("select pg_stat_clear_snapshot()");
+        return jdbc.queryForObject("""
+                        select pg_total_relation_size('kafka_event_inbox'), n_tup_upd, n_tup_hot_upd
+                          from pg_stat_user_tables
+                         where relname = 'kafka_event_inbox'
+                        """,
+                (rs, rowNum) -> new Footprint(rs.getLong(1), rs.getLong(2), rs.getLong(3), claimMicros));
+    }
+}
@@ -1,7 +1,12 @@
 package com.github.dimitryivaniuta.kraftdemo;
 
+import com.github.dimitryivaniuta.kraftdemo.api.RedriveRequest;
+import com.github.dimitryivaniuta.kraftdemo.consumer.PartitionedConsumers;
 import com.github.dimitryivaniuta.kraftdemo.persistence.repo.BusinessEventRepository;
 import com.github.dimitryivaniuta.kraftdemo.producer.DemoProducer;
+import com.github.dimitryivaniuta.kraftdemo.producer.Priority;
+import com.github.dimitryivaniuta.kraftdemo.redrive.RedriveService;
+import com.github.dimitryivaniuta.kraftdemo.redrive.RedriveStatus;
 import com.github.dimitryivaniuta.kraftdemo.reliability.service.InboxService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +20,7 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
+import java.time.Instant;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -44,6 +50,7 @@ class KafkaReliabilityIT {
     @Autowired BusinessEventRepository businessRepo;
     @Autowired InboxService inbox;
     @Autowired JdbcTemplate jdbc;
+    @Autowired RedriveService redrive;
 
     @Test
     void dedup_prevents_duplicate_side_effects_per_group() throws Exception {
@@ -91,6 +98,70 @@ class KafkaReliabilityIT {
         }, 20_000);
     }
 
+    @Test
+    void event_sent_on_both_priority_lanes_is_processed_once_per_group() throws Exception {
+        UUID eventId = UUID.randomUUID();
+
+        producer.send("kl", "lanes", 1, eventId, Priority.HIGH);
+        producer.send("kl", "lanes-bulk-copy", 1, eventId, Priority.NORMAL);
+
+        waitUntil(() -> {
+            Integer cnt = jdbc.queryForObject(
+                    "select count(*) from business_event where event_id = ?",
+                    Integer.class,
+                    eventId
+            );
+            assertThat(cnt).isEqualTo(2);
+        }, 20_000);
+
+        // give the second delivery time to arrive - it must stay a duplicate
+        Thread.sleep(2_000);
+        Integer cnt = jdbc.queryForObject(
+                "select count(*) from business_event where event_id = ?",
+                Integer.class,
+                eventId
+        );
+        assertThat(cnt).isEqualTo(2);
+
+        // the high lane has its own Kafka groups, but writes under the inbox group shared by both lanes
+        var groups = jdbc.queryForList(
+                "select consumer_group from business_event where event_id = ? order by consumer_group",
+                String.class,
+                eventId
+        );
+        assertThat(groups).containsExactly(PartitionedConsumers.GROUP_A, PartitionedConsumers.GROUP_B);
+        assertThat(inbox.getStatus(eventId, PartitionedConsumers.GROUP_A)).contains(InboxService.InboxStatus.PROCESSED);
+        assertThat(inbox.getStatus(eventId, PartitionedConsumers.GROUP_A_HIGH)).isEmpty();
+    }
+
+    @Test
+    void event_retried_on_both_priority_lanes_is_processed_once_per_group() throws Exception {
+        UUID eventId = UUID.randomUUID();
+
+        // the first attempts fail, so both lanes retry without an inbox lookup (delivery attempt > 1)
+        producer.send("klf", "FLAKY high", 2, eventId, Priority.HIGH);
+        producer.send("klf", "FLAKY bulk", 2, eventId, Priority.NORMAL);
+
+        waitUntil(() -> {
+            assertThat(inbox.getStatus(eventId, PartitionedConsumers.GROUP_A)).contains(InboxService.InboxStatus.PROCESSED);
+            assertThat(inbox.getStatus(eventId, PartitionedConsumers.GROUP_B)).contains(InboxService.InboxStatus.PROCESSED);
+        }, 30_000);
+
+        Thread.sleep(2_000);
+        Integer cnt = jdbc.queryForObject(
+                "select count(*) from business_event where event_id = ?",
+                Integer.class,
+                eventId
+        );
+        assertThat(cnt).isEqualTo(2);
+        Integer poisonCnt = jdbc.queryForObject(
+                "select count(*) from kafka_poison_message where event_id = ?",
+                Integer.class,
+                eventId
+        );
+        assertThat(poisonCnt).isEqualTo(0);
+    }
+
     @Test
     void transient_errors_are_retried_and_eventually_processed() throws Exception {
         UUID flakyId = UUID.randomUUID();
@@ -113,6 +184,76 @@ class KafkaReliabilityIT {
         assertThat(poisonCnt).isEqualTo(0);
     }
 
+    @Test
+    void poison_messages_are_redriven_by_group_and_fingerprint() throws Exception {
+        Instant before = Instant.now().minusSeconds(1);
+        UUID poisonId = UUID.randomUUID();
+        producer.send("kr", "POISON redrive", 0, poisonId);
+
+        waitUntil(() -> {
+            Integer cnt = jdbc.queryForObject(
+                    "select count(*) from kafka_poison_message where event_id = ?",
+                    Integer.class,
+                    poisonId
+            );
+            assertThat(cnt).isEqualTo(2);
+        }, 20_000);
+
+        // the Java fingerprint matches the V3 backfill formula
+        String fingerprint = jdbc.queryForObject("""
+                select fingerprint from kafka_poison_message
+                 where event_id = ? and consumer_group = ?
+                   and fingerprint = left(md5(error_class || '|' ||
+                       regexp_replace(coalesce(error_message, ''), '[0-9]+', '#', 'g')), 16)
+                """, String.class, poisonId, PartitionedConsumers.GROUP_A);
+
+        var started = redrive.start(new RedriveRequest(PartitionedConsumers.GROUP_A, null, before, null, fingerprint,
+                100, 10, false)).orElseThrow();
+
+        waitUntil(() -> {
+            var status = redrive.status(started.redriveId()).orElseThrow();
+            assertThat(status.state()).isEqualTo(RedriveStatus.State.COMPLETED);
+            assertThat(status.selected()).isEqualTo(1);
+            assertThat(status.republished()).isEqualTo(1);
+        }, 20_000);
+
+        // re-published to group-a only and still poison: group-a parks it again
+        waitUntil(() -> {
+            Integer cnt = jdbc.queryForObject(
+                    "select count(*) from kafka_poison_message where event_id = ? and consumer_group = ?",
+                    Integer.class,
+                    poisonId,
+                    PartitionedConsumers.GROUP_A
+            );
+            assertThat(cnt).isEqualTo(2);
+        }, 20_000);
+
+        // group-b skipped the re-drive: its poison row, FAILED inbox row and side effects are untouched
+        Thread.sleep(2_000);
+        Integer groupBPoison = jdbc.queryForObject(
+                "select count(*) from kafka_poison_message where event_id = ? and consumer_group = ?",
+                Integer.class,
+                poisonId,
+                PartitionedConsumers.GROUP_B
+        );
+        assertThat(groupBPoison).isEqualTo(1);
+        assertThat(inbox.getStatus(poisonId, PartitionedConsumers.GROUP_B)).contains(InboxService.InboxStatus.FAILED);
+        Integer groupBRedriven = jdbc.queryForObject(
+                "select count(*) from kafka_poison_message where event_id = ? and consumer_group = ? and redriven_at is not null",
+                Integer.class,
+                poisonId,
+                PartitionedConsumers.GROUP_B
+        );
+        assertThat(groupBRedriven).isZero();
+
+        Integer redriven = jdbc.queryForObject(
+                "select count(*) from kafka_poison_message where event_id = ? and redriven_at is not null",
+                Integer.class,
+                poisonId
+        );
+        assertThat(redriven).isEqualTo(1);
+    }
+
     private static void waitUntil(Runnable assertion, long timeoutMs) throws Exception {
         long deadline = System.currentTimeMillis() + timeoutMs;
         AssertionError last = null;
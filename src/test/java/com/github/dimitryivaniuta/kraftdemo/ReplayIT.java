@@ -0,0 +1,182 @@
+package com.github.dimitryivaniuta.kraftdemo;
+
+import com.github.dimitryivaniuta.kraftdemo.api.ReplayRequest;
+import com.github.dimitryivaniuta.kraftdemo.consumer.PartitionedConsumers;
+import com.github.dimitryivaniuta.kraftdemo.producer.DemoProducer;
+import com.github.dimitryivaniuta.kraftdemo.replay.ReplayService;
+import com.github.dimitryivaniuta.kraftdemo.replay.ReplayStatus;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replay of group-a, partition 0 of the demo topic: dedup vs. force, committed offsets, listener restart.
+ */
+@Testcontainers
+@SpringBootTest
+class ReplayIT {
+
+    private static final String GROUP = PartitionedConsumers.GROUP_A;
+    private static final int PARTITION = 0;
+
+    @Container
+    static final KafkaContainer kafka = new KafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:7.6.1"));
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"))
+            .withDatabaseName("kraft_demo")
+            .withUsername("kraft")
+            .withPassword("kraft");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.kafka.bootstrap-servers", kafka::getBootstrapServers);
+        r.add("spring.datasource.url", postgres::getJdbcUrl);
+        r.add("spring.datasource.username", postgres::getUsername);
+        r.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired DemoProducer producer;
+    @Autowired ReplayService replay;
+    @Autowired KafkaListenerEndpointRegistry registry;
+    @Autowired JdbcTemplate jdbc;
+
+    @Value("${app.topic.name}")
+    String topic;
+
+    @Test
+    void replay_skips_processed_events_unless_forced_and_restarts_the_listeners() throws Exception {
+        var ids = send(3);
+        waitUntil(() -> assertThat(rows(GROUP, ids)).isEqualTo(3), 20_000);
+        long from = offset(GROUP, ids.getFirst());
+        long to = offset(GROUP, ids.getLast()) + 1;
+
+        var skipped = replay(false, from, to);
+        assertThat(skipped.processed()).isZero();
+        assertThat(skipped.duplicatesSkipped()).isEqualTo(3);
+        assertThat(rows(GROUP, ids)).isEqualTo(3);
+
+        // a forced replay runs the side effect again: the row is rewritten in place, still one per event
+        jdbc.update("update business_event set record_value = 'stale' where consumer_group = ? and event_id = ?",
+                GROUP, ids.getFirst());
+        var forced = replay(true, from, to);
+        assertThat(forced.processed()).isEqualTo(3);
+        assertThat(forced.duplicatesSkipped()).isZero();
+        assertThat(rows(GROUP, ids)).isEqualTo(3);
+        assertThat(jdbc.queryForObject(
+                "select record_value from business_event where consumer_group = ? and event_id = ?",
+                String.class, GROUP, ids.getFirst())).isEqualTo("replay-0");
+
+        // the live position was already past the range: nothing to advance, never moved backwards
+        assertThat(committed(GROUP)).isEqualTo(to);
+
+        // the group's normal-lane listeners run again; its high lane (own Kafka group) was never stopped
+        assertThat(registry.getListenerContainer(PartitionedConsumers.L_GROUP_A_P0).isRunning()).isTrue();
+        assertThat(registry.getListenerContainer(PartitionedConsumers.L_GROUP_A_P12).isRunning()).isTrue();
+        assertThat(registry.getListenerContainer(PartitionedConsumers.L_GROUP_A_HIGH).isRunning()).isTrue();
+    }
+
+    @Test
+    void replay_advances_the_committed_offset_over_records_the_listeners_did_not_consume() throws Exception {
+        var container = registry.getListenerContainer(PartitionedConsumers.L_GROUP_A_P0);
+        container.stop();
+        try {
+            var ids = send(3);
+            // group-b still consumes: its rows tell the offsets of the records group-a has not seen
+            waitUntil(() -> assertThat(rows(PartitionedConsumers.GROUP_B, ids)).isEqualTo(3), 20_000);
+            assertThat(rows(GROUP, ids)).isZero();
+            long from = offset(PartitionedConsumers.GROUP_B, ids.getFirst());
+            long to = offset(PartitionedConsumers.GROUP_B, ids.getLast()) + 1;
+
+            var status = replay(false, from, to);
+            assertThat(status.processed()).isEqualTo(3);
+            assertThat(rows(GROUP, ids)).isEqualTo(3);
+            assertThat(committed(GROUP)).isEqualTo(to);
+            // a container that was not running before the replay is not started by it
+            assertThat(container.isRunning()).isFalse();
+        } finally {
+            container.start();
+        }
+    }
+
+    private ReplayStatus.PartitionStatus replay(boolean force, long from, long to) throws Exception {
+        var started = replay.start(new ReplayRequest(GROUP, null, Map.of(PARTITION, from), Map.of(PARTITION, to),
+                null, force, null)).orElseThrow();
+
+        waitUntil(() -> assertThat(replay.status(started.replayId()).orElseThrow().state())
+                .isEqualTo(ReplayStatus.State.COMPLETED), 30_000);
+
+        return replay.status(started.replayId()).orElseThrow().partitions().stream()
+                .filter(p -> p.partition() == PARTITION)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private List<UUID> send(int count) {
+        var ids = new ArrayList<UUID>(count);
+        for (int i = 0; i < count; i++) {
+            var id = UUID.randomUUID();
+            producer.send("kr" + i, "replay-" + i, PARTITION, id);
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private int rows(String group, List<UUID> ids) {
+        return ids.stream()
+                .mapToInt(id -> jdbc.queryForObject(
+                        "select count(*) from business_event where consumer_group = ? and event_id = ?",
+                        Integer.class, group, id))
+                .sum();
+    }
+
+    private long offset(String group, UUID id) {
+        return jdbc.queryForObject(
+                "select received_offset from business_event where consumer_group = ? and event_id = ?",
+                Long.class, group, id);
+    }
+
+    private long committed(String group) throws Exception {
+        try (var admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers()))) {
+            Map<TopicPartition, OffsetAndMetadata> offsets =
+                    admin.listConsumerGroupOffsets(group).partitionsToOffsetAndMetadata().get();
+            return offsets.get(new TopicPartition(topic, PARTITION)).offset();
+        }
+    }
+
+    private static void waitUntil(Runnable assertion, long timeoutMs) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        AssertionError last = null;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                assertion.run();
+                return;
+            } catch (AssertionError e) {
+                last = e;
+                Thread.sleep(250);
+            }
+        }
+        if (last != null) throw last;
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.dimitryivaniuta.kraftdemo;
+
+import com.github.dimitryivaniuta.kraftdemo.consumer.PartitionedConsumers;
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.ShardRouter;
+import com.github.dimitryivaniuta.kraftdemo.producer.DemoProducer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+@SpringBootTest
+class ShardedInboxIT {
+
+    @Container
+    static final KafkaContainer kafka = new KafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:7.6.1"));
+
+    @Container
+    static final PostgreSQLContainer<?> shard0 = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"))
+            .withDatabaseName("kraft_demo")
+            .withUsername("kraft")
+            .withPassword("kraft");
+
+    @Container
+    static final PostgreSQLContainer<?> shard1 = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"))
+            .withDatabaseName("kraft_demo")
+            .withUsername("kraft")
+            .withPassword("kraft");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.kafka.bootstrap-servers", kafka::getBootstrapServers);
+        r.add("spring.datasource.url", shard0::getJdbcUrl);
+        r.add("spring.datasource.username", shard0::getUsername);
+        r.add("spring.datasource.password", shard0::getPassword);
+        r.add("app.sharding.shards[0].url", shard1::getJdbcUrl);
+        r.add("app.sharding.shards[0].username", shard1::getUsername);
+        r.add("app.sharding.shards[0].password", shard1::getPassword);
+    }
+
+    @Autowired DemoProducer producer;
+    @Autowired ShardRouter router;
+
+    @Test
+    void side_effects_and_inbox_rows_land_on_the_shard_of_group_and_partition() throws Exception {
+        assertThat(router.all()).hasSize(2);
+
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        for (int p = 0; p < ids.size(); p++) {
+            producer.send("k" + p, "v" + p, p, ids.get(p));
+        }
+
+        for (int p = 0; p < ids.size(); p++) {
+            UUID eventId = ids.get(p);
+            for (String group : List.of(PartitionedConsumers.GROUP_A, PartitionedConsumers.GROUP_B)) {
+                var owner = router.route(group, p);
+                var other = router.all().get(1 - owner.index());
+
+                waitUntil(() -> assertThat(count(owner.index(), "business_event", eventId, group)).isEqualTo(1), 20_000);
+                assertThat(count(owner.index(), "kafka_event_inbox", eventId, group)).isEqualTo(1);
+                assertThat(count(other.index(), "business_event", eventId, group)).isZero();
+                assertThat(count(other.index(), "kafka_event_inbox", eventId, group)).isZero();
+            }
+        }
+    }
+
+    private Integer count(int shard, String table, UUID eventId, String group) {
+        String groupColumn = table.equals("kafka_event_inbox")
+                ? "(select name from kafka_consumer_group_dict d where d.id = group_id)"
+                : "consumer_group";
+        return router.all().get(shard).jdbc().queryForObject(
+                "select count(*) from " + table + " where event_id = ? and " + groupColumn + " = ?",
+                Integer.class,
+                eventId,
+                group
+        );
+    }
+
+    private static void waitUntil(Runnable assertion, long timeoutMs) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        AssertionError last = null;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                assertion.run();
+                return;
+            } catch (AssertionError e) {
+                last = e;
+                Thread.sleep(250);
+            }
+        }
+        if (last != null) throw last;
+    }
+}
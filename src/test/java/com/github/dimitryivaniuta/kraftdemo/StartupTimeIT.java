@@ -0,0 +1,202 @@
+package com.github.dimitryivaniuta.kraftdemo;
+
+import com.github.dimitryivaniuta.kraftdemo.config.KafkaTopicConfig;
+import com.github.dimitryivaniuta.kraftdemo.consumer.PartitionedConsumers;
+import com.github.dimitryivaniuta.kraftdemo.observe.ObservedMessageStore;
+import com.github.dimitryivaniuta.kraftdemo.observe.StartupTimings;
+import com.github.dimitryivaniuta.kraftdemo.producer.DemoProducer;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.EventIdUtil;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.TopicExistsException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Guards the restart path: time to the first consumed record in the "fast-start" profile.
+ * <p>
+ * - in-process: SpringApplication.run of the fast-start profile (JIT-compiled classes of the test JVM)
+ * - AOT + CDS: the artifact built by {@code ./gradlew cdsArchive}, launched as its own JVM; only runs when
+ *   -Dstartup.cds.dir points at build/cds ({@code ./gradlew startupTest} does that)
+ * <p>
+ * Budgets sit just above the baseline so a startup regression fails the build; tune them per CI machine with
+ * -Dstartup.budget.ms=... / -Dstartup.aot.budget.ms=...
+ */
+@Testcontainers
+class StartupTimeIT {
+
+    private static final long BUDGET_MS = Long.getLong("startup.budget.ms", 8_000);
+    private static final long AOT_BUDGET_MS = Long.getLong("startup.aot.budget.ms", 5_000);
+    private static final String CDS_DIR = System.getProperty("startup.cds.dir");
+
+    private static final Pattern FIRST_RECORD = Pattern.compile("\\[STARTUP] first record consumed by \\S+ after (\\d+) ms");
+
+    @Container
+    static final KafkaContainer kafka = new KafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:7.6.1"));
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"))
+            .withDatabaseName("kraft_demo")
+            .withUsername("kraft")
+            .withPassword("kraft");
+
+    @BeforeAll
+    static void migrate() {
+        // fast-start does not migrate; in real deploys a regular start / migration job has done this already
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .load()
+                .migrate();
+    }
+
+    @Test
+    void fast_start_consumes_first_record_within_budget() throws Exception {
+        long t0 = System.nanoTime();
+        try (var ctx = new SpringApplicationBuilder(KraftKafkaPartitionsDemoApplication.class)
+                .profiles("fast-start")
+                .run(appArgs().toArray(String[]::new))) {
+            long contextMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+            var store = ctx.getBean(ObservedMessageStore.class);
+            store.expect(PartitionedConsumers.L_GROUP_B_ALL, 1);
+            ctx.getBean(DemoProducer.class).send("k-startup", "first", 0, UUID.randomUUID());
+
+            assertThat(store.await(PartitionedConsumers.L_GROUP_B_ALL, BUDGET_MS, TimeUnit.MILLISECONDS)).isTrue();
+            long firstRecordMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+            var timings = ctx.getBean(StartupTimings.class);
+            assertThat(timings.firstRecordUptimeMs()).isPresent();
+            assertThat(firstRecordMs)
+                    .as("context %d ms, first record %d ms", contextMs, firstRecordMs)
+                    .isLessThan(BUDGET_MS);
+        }
+    }
+
+    @Test
+    void aot_cds_artifact_consumes_first_record_within_budget() throws Exception {
+        assumeTrue(CDS_DIR != null, "set -Dstartup.cds.dir (./gradlew startupTest) to measure the AOT + CDS artifact");
+        Path dir = Path.of(CDS_DIR);
+        Path jar;
+        try (var files = Files.list(dir)) {
+            jar = files.filter(p -> p.toString().endsWith(".jar")).findFirst().orElseThrow();
+        }
+
+        // a record is waiting when the application starts: group-b reads from the earliest offset
+        createTopics();
+        produceFirstRecord();
+
+        var command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-XX:SharedArchiveFile=application.jsa",
+                "-Dspring.aot.enabled=true",
+                "-jar", jar.getFileName().toString(),
+                "--spring.profiles.active=fast-start"));
+        command.addAll(appArgs());
+
+        var process = new ProcessBuilder(command).directory(dir.toFile()).redirectErrorStream(true).start();
+        try {
+            var lines = lines(process);
+            var tail = new ArrayDeque<String>();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(AOT_BUDGET_MS * 3);
+            Long firstRecordUptimeMs = null;
+            while (firstRecordUptimeMs == null && System.nanoTime() < deadline) {
+                String line = lines.poll(100, TimeUnit.MILLISECONDS);
+                if (line == null) {
+                    if (!process.isAlive() && lines.isEmpty()) break;
+                    continue;
+                }
+                if (tail.size() == 20) tail.pollFirst();
+                tail.addLast(line);
+                var m = FIRST_RECORD.matcher(line);
+                if (m.find()) firstRecordUptimeMs = Long.parseLong(m.group(1));
+            }
+
+            assertThat(firstRecordUptimeMs).as("no first record logged, last output:%n%s", String.join("\n", tail))
+                    .isNotNull();
+            assertThat(firstRecordUptimeMs).as("JVM uptime at first record").isLessThan(AOT_BUDGET_MS);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly();
+        }
+    }
+
+    private static List<String> appArgs() {
+        return List.of(
+                "--server.port=0",
+                "--spring.kafka.bootstrap-servers=" + kafka.getBootstrapServers(),
+                "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword()
+        );
+    }
+
+    /**
+     * Same layout the application would create (3 partitions per lane), so the listeners' manual assignments hold.
+     */
+    private static void createTopics() throws Exception {
+        try (var admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers()))) {
+            for (String topic : List.of("demo.events", "demo.events.high")) {
+                try {
+                    admin.createTopics(List.of(new NewTopic(topic, KafkaTopicConfig.PARTITIONS, (short) 1))).all().get();
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof TopicExistsException)) throw e;
+                }
+            }
+        }
+    }
+
+    private static void produceFirstRecord() throws Exception {
+        try (var producer = new KafkaProducer<String, String>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers(),
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class))) {
+            var record = new ProducerRecord<>("demo.events", 0, "k-startup-aot", "first");
+            record.headers().add(EventIdUtil.EVENT_ID_HEADER,
+                    UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII));
+            producer.send(record).get();
+        }
+    }
+
+    private static BlockingQueue<String> lines(Process process) {
+        var lines = new LinkedBlockingQueue<String>();
+        Thread.ofPlatform().daemon().start(() -> {
+            try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                for (String line; (line = reader.readLine()) != null; ) lines.add(line);
+            } catch (Exception ignore) {
+                // process ended
+            }
+        });
+        return lines;
+    }
+}
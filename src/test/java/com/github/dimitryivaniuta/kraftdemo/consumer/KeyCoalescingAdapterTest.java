@@ -0,0 +1,152 @@
+package com.github.dimitryivaniuta.kraftdemo.consumer;
+
+import com.github.dimitryivaniuta.kraftdemo.payload.Payload;
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.Shard;
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.ShardRouter;
+import com.github.dimitryivaniuta.kraftdemo.reliability.exception.PoisonMessageException;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.EventRecord;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.InboxService;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.ProcessingService;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.RedriveTargetUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.adapter.BatchToRecordAdapter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class KeyCoalescingAdapterTest {
+
+    private static final String GROUP = "group-a";
+
+    private final InboxService inbox = mock(InboxService.class);
+    private final ProcessingService processing = mock(ProcessingService.class);
+    private final ShardRouter shards = mock(ShardRouter.class);
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final KeyCoalescingAdapter adapter = new KeyCoalescingAdapter(inbox, processing, shards,
+            new LaneScheduler(meters, 8, 3, 1), meters);
+
+    private final Consumer<?, ?> consumer = mock(Consumer.class);
+
+    KeyCoalescingAdapterTest() {
+        var shard = mock(Shard.class);
+        doAnswer(inv -> {
+            inv.<Runnable>getArgument(0).run();
+            return null;
+        }).when(shard).runInTransaction(any());
+        when(shards.route(eq(GROUP), anyInt())).thenReturn(shard);
+        when(consumer.groupMetadata()).thenReturn(new ConsumerGroupMetadata(GROUP));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void only_newest_record_per_partition_and_key_is_processed_superseded_are_marked() {
+        var records = List.of(
+                record(0, 0, "k1"),
+                record(0, 1, "k2"),
+                record(0, 2, "k1"),
+                record(1, 0, "k1"),
+                record(1, 1, null),
+                record(1, 2, null)
+        );
+        var invoked = new ArrayList<ConsumerRecord<Object, Object>>();
+
+        adapter.adapt(messages(records), records, null, consumer, (r, ack, c, m) -> invoked.add(r));
+
+        assertThat(invoked).extracting(r -> r.partition() + "@" + r.offset())
+                .containsExactly("0@1", "0@2", "1@0", "1@1", "1@2");
+
+        ArgumentCaptor<List<EventRecord>> superseded = ArgumentCaptor.forClass(List.class);
+        verify(inbox).markProcessedBatch(eq(GROUP), superseded.capture());
+        assertThat(superseded.getValue()).extracting(e -> e.record().offset()).containsExactly(0L);
+
+        assertThat(meters.get("kafka.consumer.coalescing.ratio").tag("group", GROUP).gauge().value())
+                .isEqualTo(1.0 / 6);
+    }
+
+    @Test
+    void redrive_for_another_group_neither_supersedes_nor_is_superseded() {
+        var redrive = record(0, 2, "k1");
+        redrive.headers().add(new RecordHeader(RedriveTargetUtil.REDRIVE_GROUPS_HEADER,
+                RedriveTargetUtil.encode(List.of("group-b"))));
+        var records = List.of(record(0, 1, "k1"), redrive);
+        var invoked = new ArrayList<ConsumerRecord<Object, Object>>();
+
+        adapter.adapt(messages(records), records, null, consumer, (r, ack, c, m) -> invoked.add(r));
+
+        // both reach the listener: the newer record is another group's re-drive, the listener skips it
+        assertThat(invoked).extracting(ConsumerRecord::offset).containsExactly(1L, 2L);
+        verify(inbox, never()).markProcessedBatch(any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void records_superseded_by_a_failing_survivor_are_not_marked() {
+        var records = List.of(
+                record(0, 0, "k1"),
+                record(0, 1, "k2"),
+                record(0, 2, "k1"),
+                record(0, 3, "k2")
+        );
+        BatchToRecordAdapter.Callback<Object, Object> failing = (r, ack, c, m) -> {
+            if (r.offset() == 3) throw new IllegalStateException("boom");
+        };
+
+        assertThatThrownBy(() -> adapter.adapt(messages(records), records, null, consumer, failing))
+                .isInstanceOf(BatchListenerFailedException.class);
+
+        // k1's survivor went through, k2's did not
+        ArgumentCaptor<List<EventRecord>> superseded = ArgumentCaptor.forClass(List.class);
+        verify(inbox).markProcessedBatch(eq(GROUP), superseded.capture());
+        assertThat(superseded.getValue()).extracting(e -> e.record().offset()).containsExactly(0L);
+    }
+
+    @Test
+    void invalid_record_is_not_coalesced_away() {
+        var records = List.of(record(0, 0, "k1"), record(0, 1, "k1"));
+        doThrow(new PoisonMessageException("Payload marked as POISON"))
+                .when(processing).validate(argThat(r -> r.offset() == 0));
+        var invoked = new ArrayList<ConsumerRecord<Object, Object>>();
+
+        adapter.adapt(messages(records), records, null, consumer, (r, ack, c, m) -> invoked.add(r));
+
+        // the listener parks it as poison
+        assertThat(invoked).extracting(ConsumerRecord::offset).containsExactly(0L, 1L);
+        verify(inbox, never()).markProcessedBatch(any(), any());
+    }
+
+    @Test
+    void failing_survivor_is_reported_with_its_record() {
+        var records = List.of(record(0, 0, "k1"), record(0, 1, "k2"));
+        BatchToRecordAdapter.Callback<Object, Object> failing = (r, ack, c, m) -> {
+            if (r.offset() == 1) throw new IllegalStateException("boom");
+        };
+
+        assertThatThrownBy(() -> adapter.adapt(messages(records), records, null, consumer, failing))
+                .isInstanceOf(BatchListenerFailedException.class)
+                .satisfies(e -> assertThat(((BatchListenerFailedException) e).getRecord()).isSameAs(records.get(1)));
+    }
+
+    private static ConsumerRecord<Object, Object> record(int partition, long offset, String key) {
+        return new ConsumerRecord<>("demo.events", partition, offset, key, Payload.of("v" + offset));
+    }
+
+    private static List<Message<?>> messages(List<ConsumerRecord<Object, Object>> records) {
+        return records.stream().<Message<?>>map(r -> MessageBuilder.withPayload(r.value()).build()).toList();
+    }
+}
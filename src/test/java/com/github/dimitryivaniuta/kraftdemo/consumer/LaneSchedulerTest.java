@@ -0,0 +1,107 @@
+package com.github.dimitryivaniuta.kraftdemo.consumer;
+
+import com.github.dimitryivaniuta.kraftdemo.producer.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LaneSchedulerTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    @Test
+    void permits_are_split_by_weight_with_at_least_one_per_lane() {
+        var lanes = scheduler(8, 3, 1);
+        assertThat(lanes.share(Priority.HIGH)).isEqualTo(6);
+        assertThat(lanes.share(Priority.NORMAL)).isEqualTo(2);
+
+        var skewed = scheduler(4, 100, 1);
+        assertThat(skewed.share(Priority.HIGH)).isEqualTo(3);
+        assertThat(skewed.share(Priority.NORMAL)).isEqualTo(1);
+    }
+
+    @Test
+    void idle_permits_are_lent_but_high_waiters_go_first() throws Exception {
+        var lanes = scheduler(4, 1, 1);
+        // no high traffic: the normal lane may use every permit
+        for (int i = 0; i < 4; i++) lanes.acquire(Priority.NORMAL);
+
+        var high = acquireAsync(lanes, Priority.HIGH);
+        var normal = acquireAsync(lanes, Priority.NORMAL);
+        assertThat(high.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        lanes.release(Priority.NORMAL);
+        assertThat(high.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(normal.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        // no high waiter left: normal may borrow again
+        lanes.release(Priority.NORMAL);
+        assertThat(normal.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void normal_lane_keeps_its_guaranteed_share_under_high_load() throws Exception {
+        var lanes = scheduler(4, 3, 1);
+        lanes.acquire(Priority.HIGH);
+        lanes.acquire(Priority.HIGH);
+        lanes.acquire(Priority.HIGH);
+        lanes.acquire(Priority.NORMAL);
+
+        var high = acquireAsync(lanes, Priority.HIGH);
+        var normal = acquireAsync(lanes, Priority.NORMAL);
+        assertThat(normal.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        // the normal permit comes back to the waiting normal listener (below its share), not to the high borrower
+        lanes.release(Priority.NORMAL);
+        assertThat(normal.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(high.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        lanes.release(Priority.HIGH);
+        assertThat(high.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void latency_is_reported_per_lane() {
+        var lanes = scheduler(8, 3, 1);
+        var record = new ConsumerRecord<>("demo.events.high", 0, 0L, System.currentTimeMillis() - 50,
+                TimestampType.CREATE_TIME, 0, 0, "k", "v", new RecordHeaders(),
+                Optional.empty());
+
+        lanes.recordLatency(Priority.HIGH, "group-a", record);
+
+        var timer = meters.get("kafka.consumer.lane.latency").tag("lane", "high").tag("group", "group-a").timer();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50);
+        assertThat(meters.get("kafka.consumer.lane.latency").tag("lane", "normal").tag("group", "group-a").timer().count())
+                .isZero();
+    }
+
+    @Test
+    void latency_timers_are_registered_up_front_for_the_known_groups() {
+        scheduler(8, 3, 1);
+        assertThat(meters.find("kafka.consumer.lane.latency").timers()).hasSize(4);
+        assertThat(meters.find("kafka.consumer.lane.latency").tag("group", "group-b").tag("lane", "high").timer())
+                .isNotNull();
+    }
+
+    private LaneScheduler scheduler(int permits, int highWeight, int normalWeight) {
+        return new LaneScheduler(meters, permits, highWeight, normalWeight);
+    }
+
+    private static CountDownLatch acquireAsync(LaneScheduler lanes, Priority lane) {
+        var acquired = new CountDownLatch(1);
+        Thread.ofPlatform().daemon().start(() -> {
+            lanes.acquire(lane);
+            acquired.countDown();
+        });
+        return acquired;
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.dimitryivaniuta.kraftdemo.observe;
+
+import com.github.dimitryivaniuta.kraftdemo.consumer.PartitionedConsumers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsResult;
+import org.apache.kafka.clients.admin.ListOffsetsOptions;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConsumerLagMonitorTest {
+
+    private static final String GROUP = PartitionedConsumers.GROUP_A;
+    private static final String TOPIC = "demo.events";
+    private static final TopicPartition P0 = new TopicPartition(TOPIC, 0);
+    private static final TopicPartition P1 = new TopicPartition(TOPIC, 1);
+    private static final TopicPartition P2 = new TopicPartition(TOPIC, 2);
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final AdminClient admin = mock(AdminClient.class);
+    private final KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+    private final MessageListenerContainer container = mock(MessageListenerContainer.class);
+    private final ConsumerLagMonitor monitor = new ConsumerLagMonitor(admin, registry, meters);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(monitor, "topic", TOPIC);
+        ReflectionTestUtils.setField(monitor, "adminTimeoutMs", 1_000L);
+        monitor.registerGauges();
+
+        when(registry.getListenerContainer(PartitionedConsumers.L_GROUP_A_P0)).thenReturn(container);
+        when(container.getGroupId()).thenReturn(GROUP);
+        when(container.getAssignedPartitions()).thenReturn(List.of(P0, P1, P2));
+    }
+
+    @Test
+    void lag_is_end_offset_minus_committed_offset_per_partition() {
+        var committed = new HashMap<TopicPartition, Long>();
+        committed.put(P0, 60L);
+        // P1: nothing committed yet => the whole partition is lag
+        committed.put(P2, 30L);
+        brokerReturns(committed, Map.of(P0, 100L, P1, 50L, P2, 30L));
+
+        monitor.refresh();
+
+        var lags = monitor.snapshot();
+        assertThat(lags).hasSize(3).allSatisfy(l -> {
+            assertThat(l.listenerId()).isEqualTo(PartitionedConsumers.L_GROUP_A_P0);
+            assertThat(l.groupId()).isEqualTo(GROUP);
+            assertThat(l.topic()).isEqualTo(TOPIC);
+        });
+        assertThat(lag(0)).extracting(PartitionLag::endOffset, PartitionLag::committedOffset, PartitionLag::lag)
+                .containsExactly(100L, 60L, 40L);
+        assertThat(lag(1)).extracting(PartitionLag::endOffset, PartitionLag::committedOffset, PartitionLag::lag)
+                .containsExactly(50L, -1L, 50L);
+        assertThat(lag(2)).extracting(PartitionLag::endOffset, PartitionLag::committedOffset, PartitionLag::lag)
+                .containsExactly(30L, 30L, 0L);
+
+        // first sample: no rate yet, so no catch-up estimate unless there is nothing to catch up
+        assertThat(lag(0).recordsPerSecond()).isZero();
+        assertThat(lag(0).secondsToCatchUp()).isNull();
+        assertThat(lag(2).secondsToCatchUp()).isZero();
+
+        assertThat(meters.get("kafka.consumer.group.lag").tag("partition", "0").gauge().value()).isEqualTo(40.0);
+        assertThat(meters.get("kafka.consumer.group.lag").tag("partition", "1").gauge().value()).isEqualTo(50.0);
+    }
+
+    @Test
+    void rate_comes_from_committed_offset_deltas_and_drives_the_catch_up_estimate() throws Exception {
+        brokerReturns(Map.of(P0, 60L), Map.of(P0, 100L));
+        monitor.refresh();
+
+        Thread.sleep(20);
+        brokerReturns(Map.of(P0, 80L), Map.of(P0, 100L));
+        monitor.refresh();
+
+        var p0 = lag(0);
+        assertThat(p0.lag()).isEqualTo(20);
+        assertThat(p0.recordsPerSecond()).isPositive();
+        assertThat(p0.secondsToCatchUp()).isCloseTo(20 / p0.recordsPerSecond(), within(1e-9));
+    }
+
+    @Test
+    void failed_refresh_keeps_the_previous_snapshot() {
+        brokerReturns(Map.of(P0, 60L), Map.of(P0, 100L));
+        monitor.refresh();
+        var previous = monitor.snapshot();
+
+        var failed = new KafkaFutureImpl<Map<String, Map<TopicPartition, OffsetAndMetadata>>>();
+        failed.completeExceptionally(new IllegalStateException("broker unavailable"));
+        var offsets = mock(ListConsumerGroupOffsetsResult.class);
+        when(offsets.all()).thenReturn(failed);
+        when(admin.listConsumerGroupOffsets(anyMap())).thenReturn(offsets);
+
+        monitor.refresh();
+
+        assertThat(monitor.snapshot()).isSameAs(previous);
+    }
+
+    private PartitionLag lag(int partition) {
+        return monitor.snapshot().stream().filter(l -> l.partition() == partition).findFirst().orElseThrow();
+    }
+
+    private void brokerReturns(Map<TopicPartition, Long> committed, Map<TopicPartition, Long> end) {
+        Map<TopicPartition, OffsetAndMetadata> committedOffsets = new HashMap<>();
+        committed.forEach((tp, offset) -> committedOffsets.put(tp, new OffsetAndMetadata(offset)));
+        var offsets = mock(ListConsumerGroupOffsetsResult.class);
+        when(offsets.all()).thenReturn(KafkaFuture.completedFuture(Map.of(GROUP, committedOffsets)));
+        when(admin.listConsumerGroupOffsets(anyMap())).thenReturn(offsets);
+
+        Map<TopicPartition, ListOffsetsResultInfo> endOffsets = new HashMap<>();
+        end.forEach((tp, offset) -> endOffsets.put(tp, new ListOffsetsResultInfo(offset, -1, Optional.empty())));
+        var latest = mock(ListOffsetsResult.class);
+        when(latest.all()).thenReturn(KafkaFuture.completedFuture(endOffsets));
+        when(admin.listOffsets(anyMap(), any(ListOffsetsOptions.class))).thenReturn(latest);
+    }
+}
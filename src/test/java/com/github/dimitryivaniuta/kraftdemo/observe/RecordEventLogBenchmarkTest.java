@@ -0,0 +1,206 @@
+package com.github.dimitryivaniuta.kraftdemo.observe;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.AppenderBase;
+import com.github.dimitryivaniuta.kraftdemo.payload.Payload;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.EventIdUtil;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cost of the event log's share of the consume path (event id resolution + log call per record) with the log
+ * off / sampled / one line per record (the previous behaviour), through an async appender whose sink formats
+ * every line it receives.
+ * <p>
+ * Throughput is only compared between the modes (sampled > every record); the "close to off" claim is checked
+ * with per-thread allocation counters, which do not depend on the machine's speed.
+ */
+class RecordEventLogBenchmarkTest {
+
+    private static final int RECORDS = 200_000;
+    private static final int PARTITIONS = 3;
+    private static final String GROUP = "group-a";
+
+    private final List<ConsumerRecord<String, Payload>> records = new ArrayList<>();
+    private final AtomicLong sinkLines = new AtomicLong();
+    private final RecordEventLog eventLog = new RecordEventLog();
+
+    private Logger events;
+    private AsyncAppender async;
+
+    // state of the shared logger before the test, restored afterwards
+    private final List<Appender<ILoggingEvent>> originalAppenders = new ArrayList<>();
+    private Level originalLevel;
+    private boolean originalAdditive;
+
+    @BeforeEach
+    void setUp() {
+        var value = ("{\"payload\":\"" + "x".repeat(1_000) + "\"}").getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < RECORDS; i++) {
+            var r = new ConsumerRecord<>("demo.events", i % PARTITIONS, i / PARTITIONS, "k" + (i % 100), Payload.of(value));
+            r.headers().add(new RecordHeader(EventIdUtil.EVENT_ID_HEADER,
+                    UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII)));
+            records.add(r);
+        }
+
+        var ctx = (LoggerContext) LoggerFactory.getILoggerFactory();
+        var sink = new AppenderBase<ILoggingEvent>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                event.getFormattedMessage();
+                sinkLines.incrementAndGet();
+            }
+        };
+        sink.setContext(ctx);
+        sink.start();
+
+        async = new AsyncAppender();
+        async.setContext(ctx);
+        async.setQueueSize(8192);
+        async.setDiscardingThreshold(0);
+        async.addAppender(sink);
+        async.start();
+
+        events = ctx.getLogger(RecordEventLog.LOGGER);
+        originalLevel = events.getLevel();
+        originalAdditive = events.isAdditive();
+        events.iteratorForAppenders().forEachRemaining(originalAppenders::add);
+        // detach without stopping: the application's appenders are put back in tearDown
+        originalAppenders.forEach(events::detachAppender);
+        events.setAdditive(false);
+        events.setLevel(Level.INFO);
+        events.addAppender(async);
+
+        ReflectionTestUtils.setField(eventLog, "previewBytes", 256);
+    }
+
+    @AfterEach
+    void tearDown() {
+        events.detachAndStopAllAppenders();
+        originalAppenders.forEach(events::addAppender);
+        events.setLevel(originalLevel);
+        events.setAdditive(originalAdditive);
+    }
+
+    @Test
+    void sampled_logging_is_faster_than_a_line_per_record() {
+        double sampled = run(true, 10);
+        long sampledLines = sinkLines.getAndSet(0);
+        double everyRecord = run(true, Integer.MAX_VALUE);
+        long everyRecordLines = sinkLines.getAndSet(0);
+
+        // the worker may still be appending the last dequeued line
+        assertThat(everyRecordLines).isBetween(RECORDS - 1L, (long) RECORDS);
+        assertThat(sampledLines).isLessThan(RECORDS / 100);
+        assertThat(sampled)
+                .as("sampled %.0f records/s, every record %.0f records/s", sampled, everyRecord)
+                .isGreaterThan(everyRecord);
+    }
+
+    @Test
+    void sampled_logging_allocates_about_as_little_as_logging_off() {
+        long off = allocatedBy(false, 10);
+        long sampled = allocatedBy(true, 10);
+        long everyRecord = allocatedBy(true, Integer.MAX_VALUE);
+
+        // suppressed lines allocate nothing; the few emitted lines get a small budget
+        assertThat(sampled)
+                .as("off %d bytes, sampled %d bytes, every record %d bytes", off, sampled, everyRecord)
+                .isLessThan(off + RECORDS * 8L)
+                .isLessThan(everyRecord / 4);
+    }
+
+    @Test
+    void anomalies_are_always_logged_and_report_suppressed_lines() {
+        ReflectionTestUtils.setField(eventLog, "enabled", true);
+        ReflectionTestUtils.setField(eventLog, "linesPerSecond", 1);
+        var lines = new ArrayList<String>();
+        var capture = new AppenderBase<ILoggingEvent>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                lines.add(event.getFormattedMessage());
+            }
+        };
+        capture.setContext(events.getLoggerContext());
+        capture.start();
+        events.detachAndStopAllAppenders();
+        events.addAppender(capture);
+
+        var record = records.getFirst();
+        UUID eventId = EventIdUtil.resolveEventId(record);
+        for (int i = 0; i < 5; i++) eventLog.processed("l", GROUP, record, eventId);
+        eventLog.duplicate("l", GROUP, record, eventId, "inbox");
+
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).startsWith("event=processed").endsWith("suppressed=0");
+        assertThat(lines.get(1)).startsWith("event=duplicate").endsWith("suppressed=4");
+    }
+
+    /**
+     * @return records per second
+     */
+    private double run(boolean enabled, int linesPerSecond) {
+        ReflectionTestUtils.setField(eventLog, "enabled", enabled);
+        ReflectionTestUtils.setField(eventLog, "linesPerSecond", linesPerSecond);
+
+        // warm-up pass, then the measured pass
+        consumeAll();
+        drain();
+        sinkLines.set(0);
+        long t0 = System.nanoTime();
+        consumeAll();
+        // include draining the async queue in the cost of the run
+        drain();
+        long nanos = System.nanoTime() - t0;
+        return RECORDS / (nanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * @return bytes allocated by this thread for one pass over the records (after a warm-up pass)
+     */
+    private long allocatedBy(boolean enabled, int linesPerSecond) {
+        ReflectionTestUtils.setField(eventLog, "enabled", enabled);
+        ReflectionTestUtils.setField(eventLog, "linesPerSecond", linesPerSecond);
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().threadId();
+
+        consumeAll();
+        drain();
+        long before = threads.getThreadAllocatedBytes(tid);
+        consumeAll();
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+        drain();
+        return allocated;
+    }
+
+    private void drain() {
+        while (async.getNumberOfElementsInQueue() > 0) Thread.onSpinWait();
+    }
+
+    private void consumeAll() {
+        for (var record : records) {
+            UUID eventId = EventIdUtil.resolveEventId(record);
+            eventLog.processed("groupA-consumer-p0", GROUP, record, eventId);
+        }
+    }
+}
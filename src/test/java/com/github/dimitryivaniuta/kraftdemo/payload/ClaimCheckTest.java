@@ -0,0 +1,87 @@
+package com.github.dimitryivaniuta.kraftdemo.payload;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClaimCheckTest {
+
+    private static final byte[] POISON = "POISON".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path dir;
+
+    private final FileSystemBlobStore blobs = new FileSystemBlobStore();
+    private final ClaimCheck claimCheck = new ClaimCheck(blobs);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(blobs, "directory", dir);
+        ReflectionTestUtils.setField(claimCheck, "thresholdBytes", 1024);
+    }
+
+    @Test
+    void same_content_is_stored_once_under_its_hash() throws Exception {
+        byte[] content = "x".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+
+        String first = blobs.put(new ByteArrayInputStream(content));
+        String second = blobs.put(new ByteArrayInputStream(content));
+
+        assertThat(first).isEqualTo(second).startsWith("sha256:");
+        try (Stream<Path> files = Files.walk(dir)) {
+            assertThat(files.filter(Files::isRegularFile)).hasSize(1);
+        }
+        try (var in = blobs.open(first)) {
+            assertThat(in.readAllBytes()).isEqualTo(content);
+        }
+        assertThatThrownBy(() -> blobs.open("sha256:../../etc/passwd")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void small_values_pass_through_large_values_carry_a_reference() throws Exception {
+        var small = new RecordHeaders();
+        assertThat(claimCheck.checkIn("small", small)).isEqualTo("small");
+        assertThat(small.lastHeader(ClaimCheck.HEADER)).isNull();
+
+        String large = "y".repeat(5_000);
+        var headers = new RecordHeaders();
+        String sent = claimCheck.checkIn(large, headers);
+
+        var record = record(sent, headers);
+        assertThat(ClaimCheck.reference(record)).contains(sent);
+        try (var in = claimCheck.openValue(record)) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(large);
+        }
+    }
+
+    @Test
+    void needle_is_found_across_chunk_boundaries_of_a_streamed_blob() {
+        // "POISON" straddles the 8 KiB read chunks
+        String large = "a".repeat(8192 - 3) + "POISON" + "b".repeat(10_000);
+        var headers = new RecordHeaders();
+        var record = record(claimCheck.checkIn(large, headers), headers);
+
+        assertThat(claimCheck.containsAscii(record, POISON)).isTrue();
+        assertThat(claimCheck.containsAscii(record, "FLAKY".getBytes(StandardCharsets.US_ASCII))).isFalse();
+        // the reference text itself is what record_value columns store
+        assertThat(record.value().size()).isLessThan(100);
+    }
+
+    private static ConsumerRecord<String, Payload> record(String value, RecordHeaders headers) {
+        var record = new ConsumerRecord<String, Payload>("demo.events", 0, 0L, "k", Payload.of(value));
+        headers.forEach(h -> record.headers().add(h));
+        return record;
+    }
+}
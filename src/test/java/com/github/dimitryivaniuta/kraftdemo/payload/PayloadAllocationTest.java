@@ -0,0 +1,186 @@
+package com.github.dimitryivaniuta.kraftdemo.payload;
+
+import com.github.dimitryivaniuta.kraftdemo.consumer.LaneScheduler;
+import com.github.dimitryivaniuta.kraftdemo.consumer.PartitionedConsumers;
+import com.github.dimitryivaniuta.kraftdemo.observe.ObservedMessageStore;
+import com.github.dimitryivaniuta.kraftdemo.observe.RecordEventLog;
+import com.github.dimitryivaniuta.kraftdemo.observe.StartupTimings;
+import com.github.dimitryivaniuta.kraftdemo.reliability.dedup.DedupIndex;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.InboxService;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.ProcessingService;
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.EventIdUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Allocation check of the real consume path: records whose value is a view into a fetch buffer go through
+ * {@link PartitionedConsumers} (inbox answers "duplicate") vs. the previous eager path (String value +
+ * UUID.fromString per record).
+ * <p>
+ * Measured with per-thread allocation counters, so it is stable enough for CI (no timing involved).
+ */
+class PayloadAllocationTest {
+
+    private static final int ROUNDS = 20_000;
+    private static final int RECORDS = 64;
+    private static final PayloadDeserializer PAYLOADS = new PayloadDeserializer();
+    private static final InboxService.ClaimResult DUPLICATE =
+            new InboxService.ClaimResult(true, 1, InboxService.InboxStatus.PROCESSED);
+    private static final InboxService.ClaimResult FIRST =
+            new InboxService.ClaimResult(false, 1, InboxService.InboxStatus.PROCESSING);
+
+    private final byte[] fetchBytes = ("__{\"orderId\":\"" + "x".repeat(1_000) + "\"}__").getBytes(StandardCharsets.UTF_8);
+    private final ObservedMessageStore store = new ObservedMessageStore();
+    private final List<ConsumerRecord<String, Payload>> records = records();
+
+    private boolean duplicates = true;
+
+    private final PartitionedConsumers consumers = new PartitionedConsumers(
+            store,
+            new StartupTimings(),
+            new RecordEventLog(),
+            new DedupIndex(),
+            new InboxService(null, null) {
+                @Override
+                public ClaimResult claim(UUID eventId, String groupId, ConsumerRecord<?, ?> record) {
+                    return duplicates ? DUPLICATE : FIRST;
+                }
+            },
+            new ProcessingService(null, null, null) {
+                @Override
+                public void process(UUID eventId, String groupId, ConsumerRecord<String, Payload> record) {
+                }
+            },
+            lanes()
+    );
+
+    @Test
+    void duplicateSkipThroughTheListenerAllocatesFarLessThanEagerStrings() {
+        // warm up both paths (JIT, escape analysis)
+        long sink = listenerPath() + stringPath();
+
+        long listenerBytes = allocatedBy(this::listenerPath);
+        long stringBytes = allocatedBy(this::stringPath);
+
+        assertThat(sink).isNotZero();
+        assertThat(listenerBytes)
+                .as("listener path allocated %d bytes, string path %d bytes", listenerBytes, stringBytes)
+                .isLessThan(stringBytes / 4);
+        // duplicates are skipped before anything is retained
+        assertThat(store.events(PartitionedConsumers.L_GROUP_B_ALL)).isEmpty();
+    }
+
+    @Test
+    void observedEventsAreBoundedAndDoNotPinTheFetchBuffer() {
+        ReflectionTestUtils.setField(store, "maxEventsPerListener", 10);
+        duplicates = false;
+
+        for (var record : records) consumers.groupBConsumerAllPartitions(record);
+
+        var events = store.events(PartitionedConsumers.L_GROUP_B_ALL);
+        assertThat(events).hasSize(10);
+        assertThat(events.getLast().offset()).isEqualTo(RECORDS - 1);
+
+        String before = events.getFirst().value().asString();
+        fetchBytes[3] = 'X';
+        assertThat(Payload.of(events.getFirst().value().toByteArray()).asString())
+                .as("stored value must be a copy, not a view into the fetch buffer")
+                .isEqualTo(before);
+    }
+
+    @Test
+    void byteLevelChecksMatchStringSemantics() {
+        assertThat(Payload.of("  \t").isBlank()).isTrue();
+        assertThat(Payload.of(" x ").isBlank()).isFalse();
+        assertThat(Payload.of(" ").isBlank()).isEqualTo(" ".isBlank());
+        assertThat(Payload.of("zażółć POISON").containsAscii("POISON".getBytes(StandardCharsets.US_ASCII))).isTrue();
+        assertThat(Payload.of("POISO").containsAscii("POISON".getBytes(StandardCharsets.US_ASCII))).isFalse();
+
+        var slice = ByteBuffer.wrap("__hello__".getBytes(StandardCharsets.UTF_8), 2, 5);
+        assertThat(PAYLOADS.deserialize("t", null, slice).asString()).isEqualTo("hello");
+    }
+
+    @Test
+    void invalidUtf8IsWrittenWithReplacementCharactersLikeTheStringDecode() {
+        var valid = "zażółć 😀".getBytes(StandardCharsets.UTF_8);
+        assertThat(Payload.of(valid).utf8Bytes()).isSameAs(valid);
+
+        byte[][] invalid = {
+                {'a', (byte) 0xC3},                        // truncated sequence
+                {(byte) 0xC0, (byte) 0xAF},                // overlong '/'
+                {(byte) 0xED, (byte) 0xA0, (byte) 0x80},   // UTF-16 surrogate
+                {(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80}, // above U+10FFFF
+                {'o', 'k', (byte) 0xFF}
+        };
+        for (byte[] bytes : invalid) {
+            var expected = new String(bytes, StandardCharsets.UTF_8).getBytes(StandardCharsets.UTF_8);
+            assertThat(Payload.of(bytes).utf8Bytes()).isEqualTo(expected);
+            assertThat(new String(Payload.of(bytes).utf8Bytes(), StandardCharsets.UTF_8)).contains("�");
+        }
+    }
+
+    private long listenerPath() {
+        long acc = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            var record = records.get(i % RECORDS);
+            consumers.groupBConsumerAllPartitions(record);
+            acc += record.value().size();
+        }
+        return acc;
+    }
+
+    private long stringPath() {
+        long acc = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            var record = records.get(i % RECORDS);
+            var buf = record.value().buffer();
+            var bytes = new byte[buf.remaining()];
+            buf.get(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            var header = record.headers().lastHeader(EventIdUtil.EVENT_ID_HEADER).value();
+            UUID id = UUID.fromString(new String(header, StandardCharsets.UTF_8));
+            acc += value.length() + id.getLeastSignificantBits();
+        }
+        return acc;
+    }
+
+    private static long allocatedBy(LongSupplier work) {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(tid);
+        work.getAsLong();
+        return threads.getThreadAllocatedBytes(tid) - before;
+    }
+
+    /**
+     * Values are slices of one shared fetch buffer, as produced by the fetcher.
+     */
+    private List<ConsumerRecord<String, Payload>> records() {
+        var result = new ArrayList<ConsumerRecord<String, Payload>>(RECORDS);
+        var fetchBuffer = ByteBuffer.wrap(fetchBytes, 2, fetchBytes.length - 4);
+        for (int i = 0; i < RECORDS; i++) {
+            var r = new ConsumerRecord<>("demo.events", 0, i, "k" + i, PAYLOADS.deserialize("demo.events", null, fetchBuffer.duplicate()));
+            r.headers().add(new RecordHeader(EventIdUtil.EVENT_ID_HEADER,
+                    UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII)));
+            result.add(r);
+        }
+        return result;
+    }
+
+    private static LaneScheduler lanes() {
+        return new LaneScheduler(new SimpleMeterRegistry(), 8, 3, 1);
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.dedup;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.event.ConsumerStoppedEvent;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DedupIndexTest {
+
+    private static final String GROUP = "group-a";
+    private static final String TOPIC = "demo.events";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void processed_event_is_found_after_a_restart_at_the_checkpoint() {
+        var id = UUID.randomUUID();
+        var first = index();
+        first.onProcessed(GROUP, record(5), id);
+        assertThat(first.isProcessed(GROUP, record(6), id)).isTrue();
+        first.flushAll();
+
+        // restart: consumption resumes at the committed offset == checkpoint
+        var restarted = index();
+        assertThat(restarted.isProcessed(GROUP, record(6), id)).isTrue();
+    }
+
+    @Test
+    void first_offset_other_than_the_checkpoint_resets_the_index() {
+        var id = UUID.randomUUID();
+        var first = index();
+        first.onProcessed(GROUP, record(5), id);
+        first.flushAll();
+
+        // the partition was consumed elsewhere meanwhile (or offsets were reset): the index is stale
+        var restarted = index();
+        assertThat(restarted.isProcessed(GROUP, record(9), id)).isFalse();
+        assertThat(restarted.isProcessed(GROUP, record(6), id)).isFalse();
+    }
+
+    @Test
+    void skipped_record_advances_the_checkpoint_without_an_entry() {
+        var processed = UUID.randomUUID();
+        var first = index();
+        first.onProcessed(GROUP, record(5), processed);
+        first.onSkipped(GROUP, record(6));
+        first.flushAll();
+
+        var restarted = index();
+        assertThat(restarted.isProcessed(GROUP, record(7), processed)).isTrue();
+    }
+
+    @Test
+    void revoked_partition_is_validated_again_on_its_next_record() {
+        var id = UUID.randomUUID();
+        var index = index();
+        index.onProcessed(GROUP, record(5), id);
+
+        Consumer<?, ?> consumer = mock(Consumer.class);
+        when(consumer.groupMetadata()).thenReturn(new ConsumerGroupMetadata(GROUP));
+        index.rebalanceListener().onPartitionsRevokedAfterCommit(consumer, List.of(new TopicPartition(TOPIC, 0)));
+
+        // reassigned after another member consumed up to offset 20
+        assertThat(index.isProcessed(GROUP, record(20), id)).isFalse();
+    }
+
+    @Test
+    void stopped_consumer_releases_only_its_own_partitions() {
+        var id = UUID.randomUUID();
+        var index = index();
+        index.onProcessed(GROUP, record(0, 5), id);
+        index.onProcessed(GROUP, record(1, 5), id);
+
+        // one child of a concurrent container (same group id) stops
+        var child = mock(MessageListenerContainer.class);
+        when(child.getGroupId()).thenReturn(GROUP);
+        when(child.getAssignedPartitions()).thenReturn(List.of(new TopicPartition(TOPIC, 0)));
+        index.onConsumerStopped(new ConsumerStoppedEvent(child, mock(MessageListenerContainer.class),
+                ConsumerStoppedEvent.Reason.NORMAL));
+
+        // partition 0 is validated again (and found stale), the sibling's partition 1 is not
+        assertThat(index.isProcessed(GROUP, record(0, 20), id)).isFalse();
+        assertThat(index.isProcessed(GROUP, record(1, 20), id)).isTrue();
+    }
+
+    @Test
+    void groups_have_separate_indexes() {
+        var id = UUID.randomUUID();
+        var index = index();
+        index.onProcessed(GROUP, record(5), id);
+
+        assertThat(index.isProcessed("group-b", record(6), id)).isFalse();
+    }
+
+    @Test
+    void disabled_index_never_answers_processed() {
+        var id = UUID.randomUUID();
+        var index = index();
+        ReflectionTestUtils.setField(index, "enabled", false);
+
+        index.onProcessed(GROUP, record(5), id);
+
+        assertThat(index.isProcessed(GROUP, record(6), id)).isFalse();
+    }
+
+    private DedupIndex index() {
+        var index = new DedupIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "directory", dir);
+        ReflectionTestUtils.setField(index, "slotsPerPartition", 1024);
+        return index;
+    }
+
+    private static ConsumerRecord<String, String> record(long offset) {
+        return record(0, offset);
+    }
+
+    private static ConsumerRecord<String, String> record(int partition, long offset) {
+        return new ConsumerRecord<>(TOPIC, partition, offset, "k", "v");
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.dedup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionDedupIndexTest {
+
+    // smallest table: 1024 slots, cleared once 716 (70%) are taken
+    private static final int SLOTS = 1024;
+    private static final int MAX_SIZE = (int) (SLOTS * 0.7);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void colliding_ids_are_found_by_probing_including_wrap_around() throws Exception {
+        var index = PartitionDedupIndex.open(dir.resolve("p0.idx"), SLOTS);
+        // the last slot: probing wraps around to slot 0
+        var colliding = idsInSlot(SLOTS - 1, 4);
+
+        for (int i = 0; i < 3; i++) index.put(colliding.get(i), i);
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.contains(colliding.get(0))).isTrue();
+        assertThat(index.contains(colliding.get(1))).isTrue();
+        assertThat(index.contains(colliding.get(2))).isTrue();
+        // same home slot, not inserted: probing stops at the first empty slot
+        assertThat(index.contains(colliding.get(3))).isFalse();
+
+        // re-inserting an existing id updates it in place
+        index.put(colliding.get(1), 42);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void full_table_is_cleared_and_keeps_only_recent_events() throws Exception {
+        var index = PartitionDedupIndex.open(dir.resolve("p0.idx"), SLOTS);
+        var ids = IntStream.range(0, MAX_SIZE + 1).mapToObj(i -> UUID.randomUUID()).toList();
+
+        for (int i = 0; i < MAX_SIZE; i++) index.put(ids.get(i), i);
+        assertThat(index.size()).isEqualTo(MAX_SIZE);
+        assertThat(ids.subList(0, MAX_SIZE)).allMatch(index::contains);
+
+        index.put(ids.getLast(), MAX_SIZE);
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.contains(ids.getLast())).isTrue();
+        assertThat(index.contains(ids.getFirst())).isFalse();
+    }
+
+    @Test
+    void reopened_index_keeps_entries_and_checkpoint() throws Exception {
+        Path file = dir.resolve("group-a").resolve("demo.events-0.idx");
+        var id = UUID.randomUUID();
+
+        var index = PartitionDedupIndex.open(file, SLOTS);
+        assertThat(index.checkpoint()).isEqualTo(-1);
+        index.put(id, 7);
+        index.checkpoint(8);
+        index.force();
+
+        var reopened = PartitionDedupIndex.open(file, SLOTS);
+        assertThat(reopened.contains(id)).isTrue();
+        assertThat(reopened.size()).isEqualTo(1);
+        assertThat(reopened.checkpoint()).isEqualTo(8);
+
+        // different size => different layout => starts empty
+        var resized = PartitionDedupIndex.open(file, SLOTS * 4);
+        assertThat(resized.contains(id)).isFalse();
+        assertThat(resized.checkpoint()).isEqualTo(-1);
+    }
+
+    @Test
+    void reset_empties_the_table_and_moves_the_checkpoint() throws Exception {
+        var index = PartitionDedupIndex.open(dir.resolve("p0.idx"), SLOTS);
+        var id = UUID.randomUUID();
+        index.put(id, 3);
+        index.checkpoint(4);
+
+        index.reset(100);
+
+        assertThat(index.contains(id)).isFalse();
+        assertThat(index.size()).isZero();
+        assertThat(index.checkpoint()).isEqualTo(100);
+    }
+
+    @Test
+    void nil_uuid_is_never_stored() throws Exception {
+        var index = PartitionDedupIndex.open(dir.resolve("p0.idx"), SLOTS);
+        var nil = new UUID(0, 0);
+
+        index.put(nil, 1);
+
+        assertThat(index.size()).isZero();
+        assertThat(index.contains(nil)).isFalse();
+    }
+
+    private static List<UUID> idsInSlot(int slot, int count) {
+        var result = new ArrayList<UUID>(count);
+        while (result.size() < count) {
+            var id = UUID.randomUUID();
+            if ((PartitionDedupIndex.hash(id.getMostSignificantBits(), id.getLeastSignificantBits()) & (SLOTS - 1)) == slot) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+}
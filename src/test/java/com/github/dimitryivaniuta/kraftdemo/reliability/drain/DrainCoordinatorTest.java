@@ -0,0 +1,123 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.drain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.KafkaUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class DrainCoordinatorTest {
+
+    private static final String GROUP = "group-b";
+    private static final TopicPartition TP = new TopicPartition("demo.events", 1);
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final DrainTracker tracker = new DrainTracker(meters);
+    private final KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+    private final MessageListenerContainer container = mock(MessageListenerContainer.class);
+    private final DrainCoordinator coordinator = new DrainCoordinator(registry, tracker);
+
+    @SuppressWarnings("unchecked")
+    private final Consumer<Object, Object> consumer = mock(Consumer.class);
+
+    private final List<ConsumerRecord<Object, Object>> poll = List.of(record(10), record(11), record(12));
+
+    @BeforeEach
+    void setUp() {
+        KafkaUtils.setConsumerGroupId(GROUP);
+        ReflectionTestUtils.setField(coordinator, "timeoutMs", 200L);
+        when(registry.getListenerContainers()).thenReturn(List.of(container));
+        when(container.isRunning()).thenReturn(true);
+        when(consumer.position(TP)).thenReturn(13L);
+        when(consumer.groupMetadata()).thenReturn(new ConsumerGroupMetadata(GROUP));
+    }
+
+    @AfterEach
+    void tearDown() {
+        KafkaUtils.clearConsumerGroupId();
+    }
+
+    @Test
+    void paused_container_finishes_its_poll_before_it_is_stopped() {
+        process(poll.get(0));
+        // pausing takes effect once the rest of the poll is done
+        doAnswer(inv -> {
+            process(poll.get(1));
+            process(poll.get(2));
+            when(container.isContainerPaused()).thenReturn(true);
+            return null;
+        }).when(container).pause();
+
+        var report = coordinator.drain();
+
+        assertThat(report).isEqualTo(new DrainTracker.Report(2, 0));
+        var order = inOrder(container);
+        order.verify(container).pause();
+        order.verify(container).stop();
+        assertThat(meters.get("kafka.consumer.drain.records").tag("trigger", "shutdown").tag("outcome", "drained")
+                .counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void records_left_at_the_deadline_are_abandoned() {
+        process(poll.get(0));
+        tracker.intercept(poll.get(1), consumer); // stuck in the listener
+
+        var report = coordinator.drain();
+
+        assertThat(report).isEqualTo(new DrainTracker.Report(0, 2));
+        verify(container).stop();
+    }
+
+    @Test
+    void recovered_poison_record_counts_as_completed() {
+        process(poll.get(0));
+        tracker.intercept(poll.get(1), consumer);
+        tracker.onRecovered(GROUP, poll.get(1));
+        process(poll.get(2));
+
+        assertThat(coordinator.drain()).isEqualTo(new DrainTracker.Report(0, 0));
+    }
+
+    @Test
+    void revocation_reports_fetched_but_not_completed_records() {
+        process(poll.get(0));
+
+        tracker.rebalanceListener().onPartitionsRevokedBeforeCommit(consumer, List.of(TP));
+
+        assertThat(meters.get("kafka.consumer.drain.records").tag("trigger", "revocation").tag("outcome", "abandoned")
+                .counter().count()).isEqualTo(2);
+        // released: nothing left to report on shutdown
+        assertThat(coordinator.drain()).isEqualTo(new DrainTracker.Report(0, 0));
+    }
+
+    @Test
+    void no_running_containers_nothing_to_drain() {
+        when(container.isRunning()).thenReturn(false);
+
+        assertThat(coordinator.drain()).isEqualTo(new DrainTracker.Report(0, 0));
+        verify(container, never()).pause();
+        verify(container, never()).stop();
+    }
+
+    private void process(ConsumerRecord<Object, Object> record) {
+        tracker.intercept(record, consumer);
+        tracker.success(record, consumer);
+    }
+
+    private static ConsumerRecord<Object, Object> record(long offset) {
+        return new ConsumerRecord<>(TP.topic(), TP.partition(), offset, "k", "v");
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.dimitryivaniuta.kraftdemo.reliability.service;
+
+import com.github.dimitryivaniuta.kraftdemo.payload.ClaimCheck;
+import com.github.dimitryivaniuta.kraftdemo.payload.FileSystemBlobStore;
+import com.github.dimitryivaniuta.kraftdemo.payload.Payload;
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.Shard;
+import com.github.dimitryivaniuta.kraftdemo.persistence.shard.ShardRouter;
+import com.github.dimitryivaniuta.kraftdemo.reliability.exception.TransientProcessingException;
+import com.github.dimitryivaniuta.kraftdemo.reliability.service.InboxService.InboxStatus;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts the inbox statements of a record retried in-thread: the write-behind inbox reads once (first delivery)
+ * and writes once (terminal transition), however many attempts the record takes.
+ */
+class InboxWriteCountTest {
+
+    private static final String GROUP = "group-a";
+    private static final String TOPIC = "demo.events";
+    private static final short DICTIONARY_ID = 1;
+
+    private record Statement(String sql, List<Object> args) {
+    }
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final ShardRouter shards =
+            new ShardRouter(List.of(new Shard(0, jdbc, mock(PlatformTransactionManager.class))), List.of());
+    private final InboxService inbox = new InboxService(shards, new InboxDictionary(shards));
+    private final ProcessingService processing =
+            new ProcessingService(inbox, shards, new ClaimCheck(new FileSystemBlobStore()));
+
+    @BeforeEach
+    void setUp() {
+        // dictionary lookups (group / topic names) always find id 1; inbox lookups find no row
+        when(jdbc.query(startsWith("select id from"), any(RowMapper.class), any(Object[].class)))
+                .thenReturn(List.of(DICTIONARY_ID));
+    }
+
+    @Test
+    void record_that_succeeds_on_its_third_attempt_costs_one_inbox_write() {
+        var eventId = UUID.randomUUID();
+
+        // what the listener and the error handler do: claim, process, redeliver in-thread on a transient error
+        int attempt = 0;
+        boolean processed = false;
+        while (!processed) {
+            var record = delivery(eventId, ++attempt);
+            assertThat(inbox.claim(eventId, GROUP, record).isDuplicateProcessed()).isFalse();
+            try {
+                processing.process(eventId, GROUP, record);
+                processed = true;
+            } catch (TransientProcessingException ex) {
+                // retried
+            }
+        }
+        assertThat(attempt).isEqualTo(3);
+
+        var statements = inboxStatements();
+        // attempt 1: the dedup read; attempts 2 and 3 skip it; the failed attempts write nothing
+        assertThat(statements).filteredOn(s -> s.sql().startsWith("select")).hasSize(1);
+        assertThat(statements).filteredOn(s -> s.sql().startsWith("insert")).singleElement()
+                .extracting(Statement::args)
+                .isEqualTo(List.of(eventId, DICTIONARY_ID, DICTIONARY_ID, 1, 42L, InboxStatus.PROCESSED.code(), 3));
+        assertThat(statements).hasSize(2);
+    }
+
+    /**
+     * Statements against kafka_event_inbox, in call order (dictionary and side-effect statements excluded).
+     */
+    private List<Statement> inboxStatements() {
+        return mockingDetails(jdbc).getInvocations().stream()
+                .filter(i -> i.getArguments().length > 0
+                        && i.getArguments()[0] instanceof String sql
+                        && sql.contains("kafka_event_inbox"))
+                .map(i -> {
+                    var args = i.getArguments();
+                    return new Statement(((String) args[0]).strip(), Arrays.stream(args, 1, args.length)
+                            .filter(a -> !(a instanceof RowMapper<?>))
+                            .toList());
+                })
+                .toList();
+    }
+
+    /**
+     * The same record on every attempt; the container sets the delivery attempt header before each delivery.
+     */
+    private static ConsumerRecord<String, Payload> delivery(UUID eventId, int attempt) {
+        var record = new ConsumerRecord<>(TOPIC, 1, 42L, "k", Payload.of("FLAKY " + eventId));
+        record.headers().add(KafkaHeaders.DELIVERY_ATTEMPT, ByteBuffer.allocate(Integer.BYTES).putInt(attempt).array());
+        return record;
+    }
+}
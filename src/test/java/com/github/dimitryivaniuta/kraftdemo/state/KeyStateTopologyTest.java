@@ -0,0 +1,115 @@
+package com.github.dimitryivaniuta.kraftdemo.state;
+
+import com.github.dimitryivaniuta.kraftdemo.reliability.util.RedriveTargetUtil;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.test.TestRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Offline topology test (no broker): TopologyTestDriver runs the topology, including its RocksDB store, in-process.
+ */
+class KeyStateTopologyTest {
+
+    private static final String TOPIC = "demo.events";
+    private static final String HIGH_TOPIC = "demo.events.high";
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, String> input;
+    private TestInputTopic<String, String> highInput;
+    private KeyValueStore<String, KeyState> store;
+
+    @BeforeEach
+    void setUp() {
+        var builder = new StreamsBuilder();
+        KeyStateTopology.build(builder, TOPIC, HIGH_TOPIC);
+
+        var props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "key-state-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+
+        driver = new TopologyTestDriver(builder.build(), props);
+        input = driver.createInputTopic(TOPIC, new StringSerializer(), new StringSerializer());
+        highInput = driver.createInputTopic(HIGH_TOPIC, new StringSerializer(), new StringSerializer());
+        store = driver.getKeyValueStore(KeyStateTopology.STORE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    void keeps_latest_value_count_and_last_offset_per_key() {
+        input.pipeInput("k1", "a");
+        input.pipeInput("k2", "x");
+        input.pipeInput("k1", "b");
+
+        var k1 = store.get("k1");
+        assertThat(k1.latestValue()).isEqualTo("b");
+        assertThat(k1.count()).isEqualTo(2);
+        assertThat(k1.lastOffset()).isEqualTo(2);
+
+        var k2 = store.get("k2");
+        assertThat(k2.latestValue()).isEqualTo("x");
+        assertThat(k2.count()).isEqualTo(1);
+        assertThat(k2.lastOffset()).isEqualTo(1);
+    }
+
+    @Test
+    void both_priority_lanes_fold_into_the_same_key_state() {
+        input.pipeInput("k1", "bulk", 1_000L);
+        highInput.pipeInput("k1", "urgent", 2_000L);
+
+        var k1 = store.get("k1");
+        assertThat(k1.latestValue()).isEqualTo("urgent");
+        assertThat(k1.count()).isEqualTo(2);
+        assertThat(k1.lastTopic()).isEqualTo(HIGH_TOPIC);
+        assertThat(k1.lastOffset()).isZero();
+    }
+
+    @Test
+    void older_record_from_the_other_lane_is_counted_but_does_not_become_latest() {
+        highInput.pipeInput("k1", "urgent", 2_000L);
+        input.pipeInput("k1", "bulk", 1_000L);
+
+        var k1 = store.get("k1");
+        assertThat(k1.latestValue()).isEqualTo("urgent");
+        assertThat(k1.lastTopic()).isEqualTo(HIGH_TOPIC);
+        assertThat(k1.lastTimestamp()).isEqualTo(2_000L);
+        assertThat(k1.count()).isEqualTo(2);
+    }
+
+    @Test
+    void redrive_copies_are_not_folded_again() {
+        input.pipeInput("k1", "a", 1_000L);
+        var headers = new RecordHeaders()
+                .add(RedriveTargetUtil.REDRIVE_GROUPS_HEADER, RedriveTargetUtil.encode(List.of("group-a")));
+        input.pipeInput(new TestRecord<>("k1", "a", headers, 5_000L));
+
+        var k1 = store.get("k1");
+        assertThat(k1.count()).isEqualTo(1);
+        assertThat(k1.lastTimestamp()).isEqualTo(1_000L);
+    }
+
+    @Test
+    void records_without_key_are_ignored() {
+        input.pipeInput((String) null, "no-key");
+
+        try (var all = store.all()) {
+            assertThat(all.hasNext()).isFalse();
+        }
+    }
+}